@@ -2,6 +2,7 @@ plugins {
     id("java")
     id("application")
     id("org.openjfx.javafxplugin") version "0.1.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.weatherboys"
@@ -37,6 +38,10 @@ dependencies {
     // MongoDB Java driver
     implementation("org.mongodb:mongodb-driver-sync:5.2.1")
 
+    // Wire compression codecs for the MongoDB driver (zlib is built into the JDK)
+    runtimeOnly("com.github.luben:zstd-jni:1.5.6-6")
+    runtimeOnly("org.xerial.snappy:snappy-java:1.1.10.7")
+
     // SLF4J logging for MongoDB driver
     implementation("org.slf4j:slf4j-simple:2.0.9")
 
@@ -47,4 +52,12 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// Microbenchmarks in src/jmh/java, run with: ./gradlew jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
 }
\ No newline at end of file
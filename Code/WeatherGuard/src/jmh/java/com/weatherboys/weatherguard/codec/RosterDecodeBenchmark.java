@@ -0,0 +1,75 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.weatherboys.model.Student;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a roster through org.bson.Document (then copying field by field
+ * into Student, as TeacherViewController used to) against decoding straight into
+ * Student with StudentCodec. Works on raw BSON, so no database is needed.
+ *
+ * Run with: ./gradlew jmh  (the gc profiler reports allocation per operation)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RosterDecodeBenchmark {
+
+    @Param({"30", "400"})
+    public int rosterSize;
+
+    private final Codec<Document> documentCodec = new DocumentCodec();
+    private final Codec<Student> studentCodec = new StudentCodec();
+    private List<RawBsonDocument> rows;
+
+    @Setup
+    public void setUp() {
+        rows = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            Document doc = new Document("_id", new ObjectId())
+                    .append("studentId", String.format("S%04d", i))
+                    .append("studentName", "Student Number " + i)
+                    .append("classId", "BIO101");
+            rows.add(RawBsonDocument.parse(doc.toJson()));
+        }
+    }
+
+    @Benchmark
+    public List<Student> documentPath() {
+        List<Student> students = new ArrayList<>(rows.size());
+        for (RawBsonDocument row : rows) {
+            Document doc = row.decode(documentCodec);
+            students.add(new Student(
+                    doc.getString("studentId"),
+                    doc.getString("studentName"),
+                    doc.getString("classId")
+            ));
+        }
+        return students;
+    }
+
+    @Benchmark
+    public List<Student> codecPath() {
+        List<Student> students = new ArrayList<>(rows.size());
+        for (RawBsonDocument row : rows) {
+            students.add(row.decode(studentCodec));
+        }
+        return students;
+    }
+}
@@ -1,5 +1,8 @@
 package com.weatherboys;
 
+import com.weatherboys.weatherguard.RepositoryFactory;
+import com.weatherboys.weatherguard.WeatherPrewarmer;
+import com.weatherboys.weatherguard.Weather.ConfigManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -10,6 +13,12 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Pick up edits to config.properties while the app is running
+        ConfigManager.startWatching();
+
+        // Fill the weather caches for the classes meeting soonest while the admin view loads
+        WeatherPrewarmer.getInstance().start();
+
         // Load the admin FXML file
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/AdminView.fxml"));
         Parent root = loader.load();
@@ -25,6 +34,13 @@ public class Main extends Application {
 
     }
 
+    @Override
+    public void stop() {
+        WeatherPrewarmer.getInstance().stop();
+        // Closes the MongoDB client and write queue, logging the client's metrics
+        RepositoryFactory.close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
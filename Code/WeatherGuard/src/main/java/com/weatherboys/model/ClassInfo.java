@@ -1,7 +1,11 @@
 package com.weatherboys.model;
 
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
@@ -24,6 +28,11 @@ public class ClassInfo {
     private final StringProperty city;
     private final StringProperty startDate;
     private final StringProperty endDate;
+    // Coordinates of the city, resolved when the roster was uploaded (NaN if unknown)
+    private final DoubleProperty latitude;
+    private final DoubleProperty longitude;
+    // OpenWeather ID of the city, resolved when the roster was uploaded (0 if unknown)
+    private final LongProperty cityId;
 
     /**
      * Default constructor
@@ -37,6 +46,9 @@ public class ClassInfo {
         this.city = new SimpleStringProperty("");
         this.startDate = new SimpleStringProperty("");
         this.endDate = new SimpleStringProperty("");
+        this.latitude = new SimpleDoubleProperty(Double.NaN);
+        this.longitude = new SimpleDoubleProperty(Double.NaN);
+        this.cityId = new SimpleLongProperty(0);
     }
 
     /**
@@ -61,6 +73,9 @@ public class ClassInfo {
         this.city = new SimpleStringProperty(city);
         this.startDate = new SimpleStringProperty(startDate);
         this.endDate = new SimpleStringProperty(endDate);
+        this.latitude = new SimpleDoubleProperty(Double.NaN);
+        this.longitude = new SimpleDoubleProperty(Double.NaN);
+        this.cityId = new SimpleLongProperty(0);
     }
 
     // Property getters (for JavaFX binding)
@@ -129,6 +144,25 @@ public class ClassInfo {
         return endDate.get();
     }
 
+    public double getLatitude() {
+        return latitude.get();
+    }
+
+    public double getLongitude() {
+        return longitude.get();
+    }
+
+    public long getCityId() {
+        return cityId.get();
+    }
+
+    /**
+     * Whether the city's coordinates are known (stored with the class when the roster was uploaded)
+     */
+    public boolean hasCoordinates() {
+        return !Double.isNaN(latitude.get()) && !Double.isNaN(longitude.get());
+    }
+
     // Standard setters
     public void setClassId(String classId) {
         this.classId.set(classId);
@@ -162,6 +196,18 @@ public class ClassInfo {
         this.endDate.set(endDate);
     }
 
+    public void setLatitude(double latitude) {
+        this.latitude.set(latitude);
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude.set(longitude);
+    }
+
+    public void setCityId(long cityId) {
+        this.cityId.set(cityId);
+    }
+
     /**
      * Gets a formatted display string for semester and year
      * Example: "Fall 2025"
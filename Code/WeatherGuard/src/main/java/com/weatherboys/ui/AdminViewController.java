@@ -1,7 +1,14 @@
 package com.weatherboys.ui;
 
 import com.weatherboys.model.ClassInfo;
-import com.weatherboys.weatherguard.DatabaseManager;
+import com.weatherboys.weatherguard.AttendanceRepository;
+import com.weatherboys.weatherguard.RepositoryFactory;
+import com.weatherboys.weatherguard.Weather.ApiBudget;
+import com.weatherboys.weatherguard.Weather.GeocodeCache;
+import com.weatherboys.weatherguard.Weather.Weather;
+import com.weatherboys.weatherguard.Weather.WeatherBatch;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -15,12 +22,16 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import org.bson.Document;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 
 public class AdminViewController implements Initializable {
@@ -39,14 +50,19 @@ public class AdminViewController implements Initializable {
     private TableColumn<ClassInfo, String> semesterColumn;
     @FXML
     private TableColumn<ClassInfo, String> cityColumn;
+    @FXML
+    private TableColumn<ClassInfo, String> weatherColumn;
 
     private ObservableList<ClassInfo> classList;
-    private DatabaseManager dbManager;
+
+    // Current weather by class city, filled in by one batch fetch after the classes load
+    private Map<String, Weather> weatherByCity = new HashMap<>();
+    private AttendanceRepository dbManager;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // Initialize database manager
-        dbManager = DatabaseManager.getInstance();
+        // Initialize database manager, held until this view is replaced
+        dbManager = RepositoryFactory.acquire();
 
         // Initialize observable list
         classList = FXCollections.observableArrayList();
@@ -56,6 +72,8 @@ public class AdminViewController implements Initializable {
         semesterColumn.setCellValueFactory(cellData ->
             cellData.getValue().semesterProperty().concat(" ").concat(cellData.getValue().yearProperty().asString()));
         cityColumn.setCellValueFactory(new PropertyValueFactory<>("city"));
+        weatherColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(formatWeather(weatherByCity.get(cellData.getValue().getCity()))));
 
         // Load classes from database
         loadClassesFromDatabase();
@@ -70,24 +88,43 @@ public class AdminViewController implements Initializable {
     private void loadClassesFromDatabase() {
         classList.clear();
 
-        // Get only active classes from database (soft delete support)
-        for (Document classDoc : dbManager.getActiveClasses()) {
-            // Convert Document to ClassInfo
-            ClassInfo classInfo = new ClassInfo(
-                classDoc.getString("classId"),
-                classDoc.getString("className"),
-                classDoc.getString("semester"),
-                classDoc.getInteger("year", 0),
-                classDoc.getString("professorName"),
-                classDoc.getString("city"),
-                classDoc.getString("startDate"),
-                classDoc.getString("endDate")
-            );
-            classList.add(classInfo);
-        }
+        // Get only active classes from database (soft delete support), decoded straight into ClassInfo
+        classList.addAll(dbManager.getActiveClassList());
 
         // Set the data to TableView
         adminTable.setItems(classList);
+
+        loadWeather();
+    }
+
+    /**
+     * Fetches current weather for every class city in the background (grouped into as few
+     * API calls as possible) and fills the weather column when it arrives
+     */
+    private void loadWeather() {
+        List<String> cities = new ArrayList<>();
+        GeocodeCache geocode = GeocodeCache.getInstance();
+        for (ClassInfo classInfo : classList) {
+            cities.add(classInfo.getCity());
+            // City IDs stored with the classes let the batch use group requests even on a fresh install
+            if (classInfo.hasCoordinates() && classInfo.getCityId() > 0) {
+                geocode.put(classInfo.getCity(), classInfo.getLatitude(), classInfo.getLongitude(), classInfo.getCityId());
+            }
+        }
+        // A glanceable column, so it waits behind the views being opened
+        CompletableFuture.supplyAsync(() -> ApiBudget.callWith(ApiBudget.Priority.PREFETCH,
+                () -> WeatherBatch.fetchWeatherForCities(cities)))
+            .thenAccept(weather -> Platform.runLater(() -> {
+                weatherByCity = weather;
+                adminTable.refresh();
+            }));
+    }
+
+    private static String formatWeather(Weather weather) {
+        if (weather == null || weather.isEmpty()) {
+            return "";
+        }
+        return weather.getCurrentTemp() + " °F";
     }
 
     /**
@@ -202,6 +239,9 @@ public class AdminViewController implements Initializable {
             stage.centerOnScreen();
             stage.show();
 
+            // The teacher view holds its own reference from here on
+            RepositoryFactory.release(dbManager);
+
         } catch (IOException e) {
             // e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Navigation Error",
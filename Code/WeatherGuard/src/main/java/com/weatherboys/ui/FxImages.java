@@ -0,0 +1,65 @@
+package com.weatherboys.ui;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.IntBuffer;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * FxImages shows AWT images in JavaFX without copying their pixels.
+ *
+ * A TYPE_INT_ARGB_PRE BufferedImage stores exactly the pixel layout JavaFX renders from, so its
+ * int[] is wrapped once in a PixelBuffer and published as a WritableImage. The map, radar and QR
+ * pipelines draw such buffers on worker threads; showing one on the FX thread is then a
+ * setImage call plus a dirty mark, instead of a full SwingFXUtils copy.
+ *
+ * Producers must not draw into a buffer while it is on screen: StaticMap draws only into the canvas
+ * not marked shown, and RadarAnimation keeps the shown frame out of its prefetch ring.
+ * All methods must be called on the FX thread.
+ */
+final class FxImages {
+
+    // One wrapper per buffer, dropped along with the buffer
+    private static final Map<BufferedImage, Wrapper> wrappers = new WeakHashMap<>();
+
+    private record Wrapper(PixelBuffer<IntBuffer> pixels, WritableImage image) {
+    }
+
+    private FxImages() {
+    }
+
+    /**
+     * Gets a JavaFX image showing the current pixels of an AWT image.
+     *
+     * @param image The image; TYPE_INT_ARGB_PRE images are shared, any other type is copied
+     * @return An Image for an ImageView, or null if image is null
+     */
+    static Image publish(BufferedImage image) {
+        if (image == null) {
+            return null;
+        }
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+            return SwingFXUtils.toFXImage(image, null);
+        }
+
+        Wrapper wrapper = wrappers.get(image);
+        if (wrapper == null) {
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            PixelBuffer<IntBuffer> pixels = new PixelBuffer<>(image.getWidth(), image.getHeight(),
+                    IntBuffer.wrap(data), PixelFormat.getIntArgbPreInstance());
+            wrapper = new Wrapper(pixels, new WritableImage(pixels));
+            wrappers.put(image, wrapper);
+        } else {
+            // The buffer may have been redrawn since it was last shown; re-upload it on the next pulse
+            wrapper.pixels().updateBuffer(buffer -> null);
+        }
+        return wrapper.image();
+    }
+}
@@ -2,13 +2,27 @@ package com.weatherboys.ui;
 
 import com.weatherboys.model.ClassInfo;
 import com.weatherboys.model.Student;
-import com.weatherboys.weatherguard.DatabaseManager;
+import com.weatherboys.weatherguard.AttendanceListener;
+import com.weatherboys.weatherguard.AttendanceRepository;
+import com.weatherboys.weatherguard.AttendanceSubscription;
+import com.weatherboys.weatherguard.PollingSchedule;
 import com.weatherboys.weatherguard.QRCodeGenerator;
+import com.weatherboys.weatherguard.RepositoryFactory;
+import com.weatherboys.weatherguard.Weather.ApiBudget;
 import com.weatherboys.weatherguard.Weather.ConfigManager;
+import com.weatherboys.weatherguard.Weather.Forecast;
+import com.weatherboys.weatherguard.Weather.GeocodeCache;
+import com.weatherboys.weatherguard.Weather.RadarAnimation;
+import com.weatherboys.weatherguard.Weather.StaticMap;
+import com.weatherboys.weatherguard.Weather.Weather;
+import com.weatherboys.weatherguard.Weather.WeatherRefreshScheduler;
 import com.weatherboys.weatherguard.Weather.WeatherService;
+import com.weatherboys.weatherguard.Weather.WeatherSnapshot;
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -20,6 +34,7 @@ import javafx.collections.ObservableList;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -27,13 +42,12 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import org.bson.Document;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 public class TeacherViewController implements Initializable {
 
@@ -43,12 +57,15 @@ public class TeacherViewController implements Initializable {
     // Weather service facade
     private WeatherService weatherService;
 
+    // Keeps the class's city current while this view is open
+    private WeatherRefreshScheduler.Observation weatherObservation;
+
     // Store current temperatures (both F and C from Weather object)
     private int currentTempFahrenheit;
     private int currentTempCelsius;
 
     // Database manager for student data
-    private DatabaseManager dbManager;
+    private AttendanceRepository dbManager;
 
     // Student tracking
     private List<Student> classStudents;
@@ -58,7 +75,11 @@ public class TeacherViewController implements Initializable {
 
     // Session tracking
     private String currentSessionId;
-    private Timeline attendancePollingTimer;
+    private AttendanceSubscription attendanceSubscription;
+    // Fallback when change streams are unavailable: incremental, adaptively paced polling
+    private PauseTransition attendancePollingTimer;
+    private PollingSchedule pollingSchedule;
+    private long sessionStartMillis;
 
     // Buttons
     @FXML
@@ -108,10 +129,18 @@ public class TeacherViewController implements Initializable {
     @FXML
     private PieChart sessionPieChart;
 
+    // Weather map layer toggles
+    @FXML
+    private CheckBox tempLayerCheckBox, precipitationLayerCheckBox, cloudsLayerCheckBox, radarCheckBox;
+
+    // Radar playback: frames are drawn off the FX thread
+    private RadarAnimation radarAnimation;
+    private Timeline radarTimeline;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // Initialize database manager
-        dbManager = DatabaseManager.getInstance();
+        // Initialize database manager, held (even across a settings change) until this view is replaced
+        dbManager = RepositoryFactory.acquire();
 
         // Initialize student tracking collections
         classStudents = new ArrayList<>();
@@ -233,20 +262,44 @@ public class TeacherViewController implements Initializable {
      */
     private void initializeWeather() {
         try {
-            // Get API key from config
-            Properties config = ConfigManager.loadConfig();
-            String apiKey = config.getProperty("apiKey");
+            // Get API key from the cached config
+            String apiKey = ConfigManager.getConfig().get("apiKey");
 
-            // Create WeatherService facade with city from selected class
-            weatherService = new WeatherService(apiKey, selectedClass.getCity());
+            // Coordinates stored with the class let every weather request start at once
+            if (selectedClass.hasCoordinates()) {
+                GeocodeCache.getInstance().put(selectedClass.getCity(),
+                        selectedClass.getLatitude(), selectedClass.getLongitude());
+            }
 
-            // Get all weather data through the facade
-            Map<String, Object> weatherData = weatherService.getAllWeatherInfo();
+            // Create WeatherService facade with city from selected class; nothing is fetched yet
+            weatherService = new WeatherService(apiKey, selectedClass.getCity(), false);
 
-            // Display weather information
-            displayWeather(weatherData);
+            // Every refresh publishes a new snapshot; show it on the FX thread as it arrives
+            weatherService.addListener(snapshot -> Platform.runLater(() -> displayWeather(snapshot)));
 
-        } catch (IOException e) {
+            // Refetch after each new observation from the provider; classes in the same city share the fetch
+            stopWeatherRefresh();
+            WeatherService service = weatherService;
+            weatherObservation = WeatherRefreshScheduler.getInstance()
+                    .observe(selectedClass.getCity(), service::refreshAllData);
+
+            // Fetch everything on a worker, retrying any part that failed; results arrive through the listener
+            CompletableFuture.runAsync(() -> ApiBudget.runWith(ApiBudget.Priority.INTERACTIVE, () -> {
+                service.refreshAllData();
+                if (!service.hasValidData()) {
+                    service.getAllWeatherInfo();
+                }
+            })).exceptionally(e -> {
+                Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, "Weather Error",
+                    "Failed to load weather data: " + e.getMessage()));
+                return null;
+            });
+
+            // Display whatever is known already (e.g. after returning from the forecast view)
+            displayWeather(weatherService.getSnapshot());
+
+        } catch (IllegalArgumentException e) {
+            // WeatherService rejects a missing API key or city
             showAlert(Alert.AlertType.ERROR, "Weather Error",
                 "Failed to load weather data: " + e.getMessage());
         }
@@ -256,7 +309,8 @@ public class TeacherViewController implements Initializable {
      * Updates the temperature display based on current unit preference in WeatherService
      */
     private void updateTemperatureDisplay() {
-        if (weatherService != null && temp2 != null) {
+        // Nothing to convert until the first weather has arrived
+        if (weatherService != null && temp2 != null && weatherService.getSnapshot().hasWeather()) {
             String formattedTemp = weatherService.getFormattedTemperature(currentTempFahrenheit, currentTempCelsius);
             temp2.setText(formattedTemp);
         }
@@ -264,65 +318,36 @@ public class TeacherViewController implements Initializable {
 
     /**
      * Displays weather information in the UI
-     * @param weatherData Map containing weather, forecast, and map from WeatherService
+     * @param snapshot Weather, forecast and map published together by WeatherService
      */
-    private void displayWeather(Map<String, Object> weatherData) {
-        // Get individual components from facade response
-        var weather = weatherData.get("weather");
-        var forecast = weatherData.get("forecast");
-        var map = weatherData.get("map");
-
-        // Use reflection to safely extract weather data
-        try {
-            if (weather != null) {
-                // Display current weather with city and country
-                String cityName = weather.getClass().getMethod("getName").invoke(weather).toString();
-                String country = weather.getClass().getMethod("getCountry").invoke(weather).toString();
-                name2.setText(cityName + ", " + country);
-                description2.setText(weather.getClass().getMethod("getDescription").invoke(weather).toString());
-
-                // Store both F and C temperatures from Weather object
-                currentTempFahrenheit = (Integer) weather.getClass().getMethod("getCurrentTemp").invoke(weather);
-                currentTempCelsius = (Integer) weather.getClass().getMethod("getCurrentTempC").invoke(weather);
-
-                // Display temperature using WeatherService facade
-                updateTemperatureDisplay();
-
-                Object humidity = weather.getClass().getMethod("getHumidity").invoke(weather);
-                humid2.setText(humidity + "% Humidity");
-
-                Object windSpeed = weather.getClass().getMethod("getWind").invoke(weather);
-                wind2.setText(windSpeed + " mph");
-
-                Object sunrise = weather.getClass().getMethod("getSunRise").invoke(weather);
-                String sunriseTime = (String) weather.getClass().getMethod("convertSunRiseSunSet", long.class).invoke(weather, (Long) sunrise);
-                sunRise2.setText(sunriseTime);
-
-                Object sunset = weather.getClass().getMethod("getSunSet").invoke(weather);
-                String sunsetTime = (String) weather.getClass().getMethod("convertSunRiseSunSet", long.class).invoke(weather, (Long) sunset);
-                sunSet2.setText(sunsetTime);
-
-                String dateStr = (String) weather.getClass().getMethod("getDate").invoke(weather);
-                date2.setText(dateStr);
+    private void displayWeather(WeatherSnapshot snapshot) {
+        Weather weather = snapshot.getWeather();
+        if (weather != null) {
+            // Display current weather with city and country
+            name2.setText(weather.getName() + ", " + weather.getCountry());
+            description2.setText(weather.getDescription());
+
+            // Store both F and C temperatures from Weather object
+            currentTempFahrenheit = weather.getCurrentTemp();
+            currentTempCelsius = weather.getCurrentTempC();
+
+            // Display temperature using WeatherService facade
+            updateTemperatureDisplay();
 
-                // Load weather icon
-                String iconCode = (String) weather.getClass().getMethod("getIcon").invoke(weather);
-                loadWeatherIcon(iconCode);
-            }
+            humid2.setText(weather.getHumidity() + "% Humidity");
+            wind2.setText(weather.getWind() + " mph");
+            sunRise2.setText(weather.convertSunRiseSunSet(weather.getSunRise()));
+            sunSet2.setText(weather.convertSunRiseSunSet(weather.getSunSet()));
+            date2.setText(weather.getDate());
 
-            if (map != null) {
-                // Display weather map
-                var mapImage = map.getClass().getMethod("getMapImage").invoke(map);
-                if (mapImage != null) {
-                    Image fxImage = SwingFXUtils.toFXImage((java.awt.image.BufferedImage) mapImage, null);
-                    sessionStaticMap.setImage(fxImage);
-                }
-            }
+            // Load weather icon
+            loadWeatherIcon(weather.getIcon());
+        }
 
-        } catch (Exception e) {
-            // e.printStackTrace();
-            showAlert(Alert.AlertType.WARNING, "Display Error",
-                "Weather data loaded but some information could not be displayed");
+        StaticMap map = snapshot.getMap();
+        if (map != null && radarAnimation == null) {
+            // Display weather map with the selected layers; it is blended off the FX thread
+            showMap(map.withLayers(weatherService.getMapLayers()));
         }
     }
 
@@ -382,18 +407,11 @@ public class TeacherViewController implements Initializable {
         studentLabelMap.clear();
         studentStatusMap.clear();
 
-        // Fetch students from database
-        List<Document> studentDocs = dbManager.getStudentsByClass(selectedClass.getClassId());
+        // Fetch students from database (decoded directly into Student objects)
+        classStudents = dbManager.getStudentList(selectedClass.getClassId());
 
-        // Convert to Student objects and sort alphabetically by name
-        classStudents = studentDocs.stream()
-            .map(doc -> new Student(
-                doc.getString("studentId"),
-                doc.getString("studentName"),
-                doc.getString("classId")
-            ))
-            .sorted(Comparator.comparing(Student::getStudentName))
-            .collect(Collectors.toList());
+        // Sort alphabetically by name
+        classStudents.sort(Comparator.comparing(Student::getStudentName));
 
         // Create array of all 34 student labels
         Label[] allLabels = {
@@ -435,38 +453,33 @@ public class TeacherViewController implements Initializable {
         }
 
         try {
-            // Get all attendance records for this class
-            List<Document> allAttendance = dbManager.getAttendanceByClass(selectedClass.getClassId());
+            // Prefer the materialized summary: a single point lookup with the roster size at open
+            Document summary = dbManager.getLatestSessionSummary(selectedClass.getClassId());
+            if (summary != null) {
+                int checkedIn = summary.getInteger("present", 0) + summary.getInteger("late", 0);
+                int absent = Math.max(0, summary.getInteger("rosterSize", classStudents.size()) - checkedIn);
+                updatePieChart(checkedIn, absent, "Previous Session");
+                return;
+            }
+
+            // Sessions from before summaries existed: count them with an aggregation
+            Document latestSession = dbManager.getLatestSessionAttendance(selectedClass.getClassId());
 
-            if (allAttendance.isEmpty()) {
+            if (latestSession == null) {
                 // No previous sessions - show empty pie chart
                 updatePieChart(0, 0, "No Previous Session");
                 return;
             }
 
-            // Find the most recent session by grouping attendance by sessionId
-            Map<String, List<Document>> sessionGroups = new HashMap<>();
-            for (Document record : allAttendance) {
-                String sessionId = record.getString("sessionId");
-                sessionGroups.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(record);
-            }
-
-            // Get the most recent session (sessions are timestamp-based, so lexicographically latest is most recent)
-            String latestSessionId = sessionGroups.keySet().stream()
-                .max(String::compareTo)
-                .orElse(null);
+            // Count students who checked in
+            int checkedIn = latestSession.getInteger("count", 0);
 
-            if (latestSessionId != null) {
-                // Count students who checked in
-                int checkedIn = sessionGroups.get(latestSessionId).size();
+            // Total students enrolled (current roster count)
+            int totalStudents = classStudents.size();
+            int absent = Math.max(0, totalStudents - checkedIn);
 
-                // Total students enrolled (current roster count)
-                int totalStudents = classStudents.size();
-                int absent = Math.max(0, totalStudents - checkedIn);
-
-                // Update pie chart with previous session data
-                updatePieChart(checkedIn, absent, "Previous Session");
-            }
+            // Update pie chart with previous session data
+            updatePieChart(checkedIn, absent, "Previous Session");
 
         } catch (Exception e) {
             // If error loading previous session, just show empty chart
@@ -560,28 +573,26 @@ public class TeacherViewController implements Initializable {
             LocalDateTime now = LocalDateTime.now();
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
             currentSessionId = now.format(formatter);
-
-            // Get check-in base URL from config
-            Properties config = ConfigManager.loadConfig();
-            String baseUrl = config.getProperty("checkinBaseUrl", "https://wguard.netlify.app");
-
-            // Generate QR code
-            BufferedImage qrImage = QRCodeGenerator.generateSessionQRCode(
-                selectedClass.getClassId(),
-                baseUrl,
-                300,
-                300
-            );
-
-            if (qrImage != null) {
-                // Display QR code in ImageView
-                Image fxImage = SwingFXUtils.toFXImage(qrImage, null);
-                sessionQRCode.setImage(fxImage);
-
-                // Toggle display: show QR code, hide pie chart
-                sessionQRCode.setVisible(true);
-                sessionPieChart.setVisible(false);
-            }
+            sessionStartMillis = System.currentTimeMillis();
+
+            // Get check-in base URL from the cached config
+            String baseUrl = ConfigManager.getConfig().get("checkinBaseUrl", "https://wguard.netlify.app");
+
+            // Generate the QR code on a worker thread, straight into a buffer JavaFX shows without copying
+            String classId = selectedClass.getClassId();
+            String sessionId = currentSessionId;
+            CompletableFuture.supplyAsync(() -> QRCodeGenerator.generateSessionQRCode(classId, baseUrl, 300, 300))
+                    .thenAccept(qrImage -> Platform.runLater(() -> {
+                        // Skip a QR code for a session that has already ended
+                        if (qrImage != null && sessionActive && sessionId.equals(currentSessionId)) {
+                            // Display QR code in ImageView
+                            sessionQRCode.setImage(FxImages.publish(qrImage));
+
+                            // Toggle display: show QR code, hide pie chart
+                            sessionQRCode.setVisible(true);
+                            sessionPieChart.setVisible(false);
+                        }
+                    }));
 
             // Create session in database
             String weatherData = "{}"; // TODO: Add current weather data
@@ -607,27 +618,97 @@ public class TeacherViewController implements Initializable {
             endSessionButton.setVisible(true);
             endSessionButton.setDisable(false);
 
-            // Start polling for attendance updates (every 2 seconds)
-            startAttendancePolling();
+            // Subscribe to live check-ins for this session
+            startAttendanceFeed();
 
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
             showAlert(Alert.AlertType.ERROR, "Session Error",
                 "Failed to start session: " + e.getMessage());
         }
     }
 
     /**
-     * Starts polling the database for new attendance records
+     * Subscribes to check-ins for the current session.
+     * Each new check-in turns its label green as soon as it is written;
+     * falls back to polling if the database cannot provide a change stream.
+     */
+    private void startAttendanceFeed() {
+        String sessionId = currentSessionId;
+        attendanceSubscription = dbManager.subscribeToAttendance(sessionId, new AttendanceListener() {
+            @Override
+            public void onCheckIn(Document attendance) {
+                String studentId = attendance.getString("studentId");
+                Platform.runLater(() -> {
+                    // Ignore late events from a session that has already ended
+                    if (sessionId.equals(currentSessionId)) {
+                        markStudentCheckedIn(studentId);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Platform.runLater(() -> {
+                    if (sessionId.equals(currentSessionId) && attendancePollingTimer == null) {
+                        startAttendancePolling();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops the live attendance feed and any fallback polling
+     */
+    private void stopAttendanceFeed() {
+        if (attendanceSubscription != null) {
+            attendanceSubscription.close();
+            attendanceSubscription = null;
+        }
+        stopAttendancePolling();
+    }
+
+    /**
+     * Starts polling the database for new attendance records.
+     * Each poll runs off the FX thread and only asks about students not checked in yet, and the
+     * interval adapts: fast early in the session and during bursts, backing off when quiet.
      */
     private void startAttendancePolling() {
-        // Poll every 2 seconds
-        attendancePollingTimer = new Timeline(new KeyFrame(Duration.seconds(2), event -> {
-            checkForNewAttendance();
-        }));
-        attendancePollingTimer.setCycleCount(Timeline.INDEFINITE);
+        pollingSchedule = new PollingSchedule(sessionStartMillis);
+
+        attendancePollingTimer = new PauseTransition(Duration.millis(pollingSchedule.getCurrentDelay()));
+        attendancePollingTimer.setOnFinished(event -> pollAttendance());
         attendancePollingTimer.play();
     }
 
+    /**
+     * Queries the check-ins of the students still missing on a worker, then shows them and
+     * re-arms the timer on the FX thread
+     */
+    private void pollAttendance() {
+        String sessionId = currentSessionId;
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, String> entry : studentStatusMap.entrySet()) {
+            if (!entry.getValue().equals("green")) {
+                missing.add(entry.getKey());
+            }
+        }
+
+        AttendanceRepository repository = dbManager;
+        CompletableFuture<List<Document>> poll = !sessionActive || sessionId == null || missing.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : CompletableFuture.supplyAsync(() -> repository.getAttendanceOf(sessionId, missing));
+        poll.exceptionally(e -> List.of()).thenAccept(records -> Platform.runLater(() -> {
+            int newRecords = sessionId != null && sessionId.equals(currentSessionId) ? showPolledAttendance(records) : 0;
+            // The timer is cleared when polling stops; only re-arm while still polling
+            if (attendancePollingTimer != null) {
+                long delay = pollingSchedule.nextDelay(newRecords, System.currentTimeMillis());
+                attendancePollingTimer.setDuration(Duration.millis(delay));
+                attendancePollingTimer.playFromStart();
+            }
+        }));
+    }
+
     /**
      * Stops the attendance polling timer
      */
@@ -639,17 +720,18 @@ public class TeacherViewController implements Initializable {
     }
 
     /**
-     * Checks database for new attendance records and updates labels
+     * Turns the labels of polled check-ins green
+     *
+     * @param attendanceRecords Check-ins returned by a poll
+     * @return Number of students newly marked as checked in
      */
-    private void checkForNewAttendance() {
-        if (!sessionActive || currentSessionId == null) {
-            return;
+    private int showPolledAttendance(List<Document> attendanceRecords) {
+        if (!sessionActive) {
+            return 0;
         }
 
-        // Get all attendance records for this session
-        List<Document> attendanceRecords = dbManager.getAttendanceBySession(currentSessionId);
-
         // Update labels for students who have checked in
+        int newlyCheckedIn = 0;
         for (Document record : attendanceRecords) {
             String studentId = record.getString("studentId");
             String status = studentStatusMap.get(studentId);
@@ -657,8 +739,10 @@ public class TeacherViewController implements Initializable {
             // Only update if label exists and hasn't been marked green yet
             if (status != null && !status.equals("green")) {
                 markStudentCheckedIn(studentId);
+                newlyCheckedIn++;
             }
         }
+        return newlyCheckedIn;
     }
 
     /**
@@ -687,23 +771,31 @@ public class TeacherViewController implements Initializable {
             return;
         }
 
-        // Stop polling for attendance updates
-        stopAttendancePolling();
+        // Stop live attendance updates
+        stopAttendanceFeed();
 
-        // Close session in database
-        if (currentSessionId != null) {
-            dbManager.closeSession(currentSessionId);
+        // Close session in database (this also finalizes its summary)
+        Document summary = null;
+        if (currentSessionId != null && dbManager.closeSession(currentSessionId)) {
+            summary = dbManager.getSessionSummary(currentSessionId);
         }
 
         // Mark session as inactive
         sessionActive = false;
 
-        // Count attendance statistics
-        int totalStudents = studentLabelMap.size();
-        long checkedIn = studentStatusMap.values().stream()
-            .filter(status -> status.equals("green"))
-            .count();
-        long absent = totalStudents - checkedIn;
+        // Count attendance statistics, from the summary once it is finalized (the close may still be queued)
+        long checkedIn;
+        long absent;
+        if (summary != null && summary.getBoolean("final", false)) {
+            checkedIn = summary.getInteger("present", 0) + summary.getInteger("late", 0);
+            absent = summary.getInteger("absent", 0);
+        } else {
+            int totalStudents = studentLabelMap.size();
+            checkedIn = studentStatusMap.values().stream()
+                .filter(status -> status.equals("green"))
+                .count();
+            absent = totalStudents - checkedIn;
+        }
 
         // Update pie chart with current session results
         updatePieChart((int) checkedIn, (int) absent, "Current Session Results");
@@ -739,15 +831,17 @@ public class TeacherViewController implements Initializable {
 
     @FXML
     public void switchToFiveDayForecastView(ActionEvent event) {
+        stopRadar();
+        stopWeatherRefresh();
         try {
             // Pass forecast data to FiveDayForecastController using Facade pattern
             if (weatherService != null) {
-                var forecast = weatherService.getFiveDayForecast();
-                var weather = weatherService.getCurrentWeatherData();
+                Forecast forecast = weatherService.getFiveDayForecast();
+                Weather weather = weatherService.getCurrentWeatherData();
 
-                // Extract location info using reflection (to maintain facade pattern)
-                String cityName = (String) weather.getClass().getMethod("getName").invoke(weather);
-                String country = (String) weather.getClass().getMethod("getCountry").invoke(weather);
+                // Location info from the typed weather data
+                String cityName = weather.getName();
+                String country = weather.getCountry();
 
                 // Pass forecast data WITH temperature unit preference (from WeatherService) and ClassInfo
                 boolean isFahrenheit = weatherService.isUsingFahrenheit();
@@ -763,6 +857,7 @@ public class TeacherViewController implements Initializable {
             stage.centerOnScreen();
             stage.setResizable(false);
             stage.show();
+            RepositoryFactory.release(dbManager);
 
         } catch (Exception e) {
             // e.printStackTrace();
@@ -783,12 +878,144 @@ public class TeacherViewController implements Initializable {
         }
     }
 
+    /**
+     * Re-blends the weather map with the layers ticked in the map toggles
+     * Layers already shown once are reused; a newly ticked layer is fetched off the FX thread
+     */
+    @FXML
+    public void updateMapLayers() {
+        if (weatherService == null) {
+            return;
+        }
+        List<String> layers = new ArrayList<>();
+        if (tempLayerCheckBox.isSelected()) {
+            layers.add("temp_new");
+        }
+        if (precipitationLayerCheckBox.isSelected()) {
+            layers.add("precipitation_new");
+        }
+        if (cloudsLayerCheckBox.isSelected()) {
+            layers.add("clouds_new");
+        }
+        weatherService.setMapLayers(layers);
+
+        loadWeatherMap().thenAccept(map -> {
+            if (map != null && !map.isEmpty()) {
+                showMap(map);
+            }
+        });
+    }
+
+    /**
+     * Gets the weather map with the selected layers, from the snapshot when it is there,
+     * otherwise fetched on a worker so the FX thread never waits on the API
+     */
+    private CompletableFuture<StaticMap> loadWeatherMap() {
+        WeatherService service = weatherService;
+        StaticMap map = service.getSnapshot().getMap();
+        if (map != null) {
+            return CompletableFuture.completedFuture(map.withLayers(service.getMapLayers()));
+        }
+        return CompletableFuture.supplyAsync(() -> ApiBudget.callWith(ApiBudget.Priority.INTERACTIVE,
+                service::getWeatherMap));
+    }
+
+    /**
+     * Blends a map on a worker thread and swaps it into the map pane
+     */
+    private void showMap(StaticMap map) {
+        map.getMapImageAsync().thenAccept(mapImage -> Platform.runLater(() -> {
+            // Ignore a slow blend that a later toggle (or the radar) has already replaced
+            // Later blends draw into the other buffer while this one is on screen; a buffer a newer
+            // blend is already redrawing is skipped, that blend shows its own result when done
+            if (mapImage != null && radarAnimation == null && weatherService != null
+                    && map.getLayers().equals(weatherService.getMapLayers()) && map.markShown(mapImage)) {
+                sessionStaticMap.setImage(FxImages.publish(mapImage));
+            }
+        }));
+    }
+
+    /**
+     * Starts or stops the radar animation in the map pane
+     */
+    @FXML
+    public void toggleRadar() {
+        stopRadar();
+        if (!radarCheckBox.isSelected()) {
+            // Back to the still map with the selected layers
+            updateMapLayers();
+            return;
+        }
+
+        if (weatherService == null) {
+            radarCheckBox.setSelected(false);
+            showAlert(Alert.AlertType.WARNING, "Radar Unavailable", "No weather map is loaded for this class");
+            return;
+        }
+        loadWeatherMap().thenAccept(map -> Platform.runLater(() -> startRadar(map)));
+    }
+
+    /**
+     * Plays the radar over a loaded map, unless the radar was switched off while it loaded
+     */
+    private void startRadar(StaticMap map) {
+        if (!radarCheckBox.isSelected() || radarAnimation != null) {
+            return;
+        }
+        RadarAnimation animation = RadarAnimation.forMap(map);
+        if (animation == null) {
+            radarCheckBox.setSelected(false);
+            showAlert(Alert.AlertType.WARNING, "Radar Unavailable", "No weather map is loaded for this class");
+            return;
+        }
+        radarAnimation = animation;
+        radarAnimation.start();
+
+        // Each tick only shows a frame that is already drawn; an unready frame just holds the current one
+        radarTimeline = new Timeline(new KeyFrame(Duration.millis(animation.getFrameMillis()), e -> showNextRadarFrame()));
+        radarTimeline.setCycleCount(Animation.INDEFINITE);
+        radarTimeline.play();
+    }
+
+    private void showNextRadarFrame() {
+        if (radarAnimation == null) {
+            return;
+        }
+        RadarAnimation.Frame frame = radarAnimation.poll();
+        if (frame == null) {
+            return;
+        }
+        // Frames are drawn in premultiplied ARGB, so showing one is a swap rather than a copy
+        sessionStaticMap.setImage(FxImages.publish(frame.image()));
+        radarAnimation.advance();
+    }
+
+    private void stopRadar() {
+        if (radarTimeline != null) {
+            radarTimeline.stop();
+            radarTimeline = null;
+        }
+        if (radarAnimation != null) {
+            radarAnimation.close();
+            radarAnimation = null;
+        }
+    }
+
+    private void stopWeatherRefresh() {
+        if (weatherObservation != null) {
+            weatherObservation.close();
+            weatherObservation = null;
+        }
+    }
+
     @FXML
     public void switchToAdminView(ActionEvent event) {
+        stopRadar();
+        stopWeatherRefresh();
         try {
-            // Stop polling timer if session is active
+            // Stop attendance feed if session is active
             if (sessionActive) {
-                stopAttendancePolling();
+                stopAttendanceFeed();
             }
 
             // Load AdminView FXML
@@ -803,6 +1030,7 @@ public class TeacherViewController implements Initializable {
             stage.sizeToScene();
             stage.centerOnScreen();
             stage.show();
+            RepositoryFactory.release(dbManager);
 
         } catch (IOException e) {
             showAlert(Alert.AlertType.ERROR, "Navigation Error",
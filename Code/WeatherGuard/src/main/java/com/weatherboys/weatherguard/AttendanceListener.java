@@ -0,0 +1,28 @@
+package com.weatherboys.weatherguard;
+
+import org.bson.Document;
+
+/**
+ * Callback for live attendance updates delivered by an {@link AttendanceSubscription}.
+ * Methods are invoked off the FX thread (on the subscription's background thread,
+ * or on the writing thread for the in-memory repository), so UI code must hand the
+ * work over to the FX thread itself.
+ */
+public interface AttendanceListener {
+
+    /**
+     * Called once for each new check-in in the subscribed session.
+     *
+     * @param attendance The inserted attendance document
+     */
+    void onCheckIn(Document attendance);
+
+    /**
+     * Called when the feed stops because the server cannot serve it
+     * (e.g. change streams are not supported by the deployment).
+     *
+     * @param e The error that ended the feed
+     */
+    default void onError(Exception e) {
+    }
+}
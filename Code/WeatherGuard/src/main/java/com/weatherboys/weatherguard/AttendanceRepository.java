@@ -0,0 +1,206 @@
+package com.weatherboys.weatherguard;
+
+import com.weatherboys.model.Attendance;
+import com.weatherboys.model.ClassInfo;
+import com.weatherboys.model.Session;
+import com.weatherboys.model.Student;
+import org.bson.Document;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AttendanceRepository is the storage contract behind the WeatherGuard attendance system:
+ * classes, rosters, sessions, check-ins and student validation.
+ *
+ * Implementations:
+ * - DatabaseManager: MongoDB, used by the application
+ * - InMemoryAttendanceRepository: concurrent in-process storage for tests and benchmarks
+ *
+ * Every implementation follows the same rules: a student checks in at most once per session,
+ * deleting a class only hides it from active views, and failures are reported through
+ * return values (false / null / empty list) rather than exceptions.
+ * Obtain the configured instance from RepositoryFactory.getRepository().
+ */
+public interface AttendanceRepository extends AutoCloseable {
+
+    // ---- Classes ----
+
+    /**
+     * @return All classes, including soft-deleted ones
+     */
+    List<Document> getAllClasses();
+
+    /**
+     * @return Classes that have not been soft deleted
+     */
+    List<Document> getActiveClasses();
+
+    /**
+     * @return Active classes as ClassInfo objects
+     */
+    List<ClassInfo> getActiveClassList();
+
+    /**
+     * @param classId The class identifier
+     * @return Class document, or null if not found
+     */
+    Document getClassInfo(String classId);
+
+    /**
+     * Soft deletes a class; its students and attendance history are kept.
+     *
+     * @param classId The class identifier
+     * @return true if an active class was deactivated, false otherwise
+     */
+    boolean deleteClass(String classId);
+
+    // ---- Rosters ----
+
+    /**
+     * Imports a roster CSV (see RosterCsv for the format), replacing the class's previous roster.
+     *
+     * @param filePath Path to the roster CSV file
+     * @return true if successful, false otherwise
+     */
+    boolean uploadRosterCsv(String filePath);
+
+    /**
+     * Imports a roster CSV, writing students in batches of at most batchSize.
+     *
+     * @param filePath Path to the roster CSV file
+     * @param batchSize Maximum number of students written per batch
+     * @return true if successful, false otherwise
+     */
+    boolean uploadRosterCsv(String filePath, int batchSize);
+
+    /**
+     * @param classId The class identifier
+     * @return Student documents enrolled in the class
+     */
+    List<Document> getStudentsByClass(String classId);
+
+    /**
+     * @param classId The class identifier
+     * @return Students enrolled in the class
+     */
+    List<Student> getStudentList(String classId);
+
+    /**
+     * @param studentId Student ID to validate
+     * @param classId Class ID to check enrollment
+     * @return Student document if enrolled, null otherwise
+     */
+    Document validateStudent(String studentId, String classId);
+
+    // ---- Sessions ----
+
+    /**
+     * @param classId The class identifier
+     * @param sessionId Unique session ID (timestamp-based from QR code)
+     * @param weatherData Current weather data as JSON string
+     * @return The id of the created session, or null if failed
+     */
+    String createSession(String classId, String sessionId, String weatherData);
+
+    /**
+     * @param sessionId The session identifier
+     * @return Session document, or null if not found
+     */
+    Document getSession(String sessionId);
+
+    /**
+     * Marks a session inactive and finalizes its summary.
+     *
+     * @param sessionId The session identifier
+     * @return true if successful, false otherwise
+     */
+    boolean closeSession(String sessionId);
+
+    /**
+     * @return Active session documents
+     */
+    List<Document> getActiveSessions();
+
+    /**
+     * @return Active sessions as Session objects
+     */
+    List<Session> getActiveSessionList();
+
+    /**
+     * @param sessionId The session identifier
+     * @return Summary document (see DatabaseManager.getSessionSummary for fields), or null
+     */
+    Document getSessionSummary(String sessionId);
+
+    /**
+     * @param classId The class identifier
+     * @return Summary of the class's most recent session, or null
+     */
+    Document getLatestSessionSummary(String classId);
+
+    /**
+     * @param classIds The class identifiers
+     * @return openedAt of each class's most recent session, by classId; classes without
+     *         a summarized session are left out
+     */
+    Map<String, String> getLatestOpenedAt(Collection<String> classIds);
+
+    // ---- Attendance ----
+
+    /**
+     * @param classId The class identifier
+     * @param sessionId The session identifier
+     * @param studentId Student's unique ID
+     * @param studentName Student's name
+     * @return true if recorded, false if the student already checked in or the write failed
+     */
+    boolean markAttendance(String classId, String sessionId, String studentId, String studentName);
+
+    /**
+     * @param sessionId The session identifier
+     * @return Attendance documents of the session
+     */
+    List<Document> getAttendanceBySession(String sessionId);
+
+    /**
+     * @param sessionId The session identifier
+     * @return Attendance records of the session
+     */
+    List<Attendance> getAttendanceList(String sessionId);
+
+    /**
+     * @param sessionId The session identifier
+     * @param studentIds Students to look for, e.g. those not seen checking in yet
+     * @return Documents with _id and studentId of those students' check-ins
+     */
+    List<Document> getAttendanceOf(String sessionId, Collection<String> studentIds);
+
+    /**
+     * @param classId The class identifier
+     * @return Attendance documents of every session of the class
+     */
+    List<Document> getAttendanceByClass(String classId);
+
+    /**
+     * @param classId The class identifier
+     * @return Document with "sessionId" and "count" for the latest session with attendance, or null
+     */
+    Document getLatestSessionAttendance(String classId);
+
+    /**
+     * Subscribes to new check-ins for a session.
+     *
+     * @param sessionId The session identifier
+     * @param listener Callback invoked off the FX thread for each check-in
+     * @return The running subscription; close it when the session ends
+     */
+    AttendanceSubscription subscribeToAttendance(String sessionId, AttendanceListener listener);
+
+    /**
+     * Releases the repository's resources. Should be called when shutting down the application.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,18 @@
+package com.weatherboys.weatherguard;
+
+/**
+ * A live feed of check-ins for one session, obtained from
+ * AttendanceRepository.subscribeToAttendance. Close it when the session ends.
+ */
+public interface AttendanceSubscription extends AutoCloseable {
+
+    String getSessionId();
+
+    boolean isClosed();
+
+    /**
+     * Stops delivering check-ins to the listener.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,160 @@
+package com.weatherboys.weatherguard;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ChangeStreamSubscription pushes new check-ins for one session to a listener.
+ * Backed by a MongoDB change stream on the attendance collection, filtered on the
+ * server to inserts for the session, so an idle session generates no reads.
+ *
+ * The stream is opened asynchronously, so once it is open the check-ins already in the
+ * collection are read and delivered as well; a student is delivered at most once even if
+ * it shows up in both. The last seen resume token is kept so the stream picks up exactly
+ * where it left off after a dropped connection. Obtain instances from
+ * DatabaseManager.subscribeToAttendance and close them when the session ends.
+ */
+public class ChangeStreamSubscription implements AttendanceSubscription {
+
+    private static final Logger logger = Logger.getLogger(ChangeStreamSubscription.class.getName());
+    private static final long MAX_AWAIT_MILLIS = 1000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MongoCollection<Document> attendanceCollection;
+    private final String sessionId;
+    private final AttendanceListener listener;
+    private final Thread worker;
+
+    private volatile BsonDocument resumeToken;
+    private volatile boolean closed = false;
+
+    // Only touched by the worker thread
+    private final Set<String> delivered = new HashSet<>();
+
+    ChangeStreamSubscription(MongoCollection<Document> attendanceCollection, String sessionId,
+                           AttendanceListener listener, BsonDocument resumeToken) {
+        this.attendanceCollection = attendanceCollection;
+        this.sessionId = sessionId;
+        this.listener = listener;
+        this.resumeToken = resumeToken;
+        this.worker = new Thread(this::run, "attendance-feed-" + sessionId);
+        this.worker.setDaemon(true);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    private void run() {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.eq("operationType", "insert"),
+                Filters.eq("fullDocument.sessionId", sessionId)
+        )));
+        long backoff = INITIAL_BACKOFF_MILLIS;
+
+        while (!closed) {
+            ChangeStreamIterable<Document> stream = attendanceCollection.watch(pipeline)
+                    .maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                backoff = INITIAL_BACKOFF_MILLIS;
+                if (resumeToken == null) {
+                    // Without a resume token the stream starts now: catch up on anything written before
+                    for (Document attendance : attendanceCollection.find(Filters.eq("sessionId", sessionId))
+                            .projection(Projections.include("studentId"))) {
+                        deliver(attendance);
+                    }
+                }
+                while (!closed) {
+                    // tryNext returns null after maxAwaitTime so close() is noticed promptly
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null) {
+                        if (cursor.getResumeToken() != null) {
+                            resumeToken = cursor.getResumeToken();
+                        }
+                        continue;
+                    }
+                    resumeToken = change.getResumeToken();
+                    if (change.getFullDocument() != null) {
+                        deliver(change.getFullDocument());
+                    }
+                }
+            } catch (MongoCommandException e) {
+                // The server refused the stream (not a replica set, history lost, ...); retrying won't help
+                if (!closed) {
+                    logger.log(Level.WARNING, "Attendance feed unavailable for session: " + sessionId, e);
+                    closed = true;
+                    listener.onError(e);
+                }
+            } catch (MongoException e) {
+                if (closed) {
+                    break;
+                }
+                logger.log(Level.WARNING, "Attendance feed interrupted for session: " + sessionId
+                        + ", resuming in " + backoff + " ms", e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    closed = true;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void deliver(Document attendance) {
+        if (delivered.add(attendance.getString("studentId")) && !closed) {
+            listener.onCheckIn(attendance);
+        }
+    }
+
+    /**
+     * Gets the resume token of the last event seen.
+     * Pass it to DatabaseManager.subscribeToAttendance to continue a feed without losing events.
+     *
+     * @return The resume token, or null if the stream has not started yet
+     */
+    public BsonDocument getResumeToken() {
+        return resumeToken;
+    }
+
+    @Override
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops the feed. The background thread exits within one await interval.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
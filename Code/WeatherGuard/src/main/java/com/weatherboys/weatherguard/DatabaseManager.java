@@ -1,19 +1,59 @@
 package com.weatherboys.weatherguard;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.*;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.event.CommandListener;
+import com.weatherboys.model.Attendance;
+import com.weatherboys.model.ClassInfo;
+import com.weatherboys.model.Session;
+import com.weatherboys.model.Student;
 import com.weatherboys.weatherguard.Weather.ConfigManager;
+import com.weatherboys.weatherguard.Weather.ConfigSnapshot;
+import com.weatherboys.weatherguard.Weather.GeocodeCache;
+import com.weatherboys.weatherguard.codec.ModelCodecs;
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,18 +61,57 @@ import java.util.logging.Logger;
  * DatabaseManager handles all MongoDB operations for WeatherGuard attendance system.
  * Manages connections, sessions, and attendance records in MongoDB.
  * Implements Singleton pattern for shared database access across controllers.
+ * This is the MongoDB implementation of AttendanceRepository.
  */
-public class DatabaseManager {
+public class DatabaseManager implements AttendanceRepository {
 
     private static final Logger logger = Logger.getLogger(DatabaseManager.class.getName());
     private static DatabaseManager instance = null;
+    // Follows config edits for the singleton; removed again by detachInstance
+    private static BiConsumer<ConfigSnapshot, ConfigSnapshot> configListener = null;
+    private static final int DEFAULT_ROSTER_BATCH_SIZE = 500;
+    private static final String DEFAULT_WRITE_QUEUE_FILE = "pending_writes.jsonl";
+    private static final int WRITE_QUEUE_BATCH_SIZE = 200;
+
+    // Operation names recorded in the write queue
+    private static final String OP_CREATE_SESSION = "createSession";
+    private static final String OP_MARK_ATTENDANCE = "markAttendance";
+    private static final String OP_CLOSE_SESSION = "closeSession";
+
+    // Projections for the typed reads: fetch only what the transfer objects hold
+    private static final Bson CLASS_INFO_FIELDS = Projections.fields(Projections.excludeId(), Projections.include(
+            "classId", "className", "semester", "year", "professorName", "city", "startDate", "endDate",
+            "lat", "lon", "cityId"));
+    private static final Bson STUDENT_FIELDS = Projections.fields(Projections.excludeId(), Projections.include(
+            "studentId", "studentName", "classId"));
+    private static final Bson ATTENDANCE_FIELDS = Projections.fields(Projections.excludeId(), Projections.include(
+            "studentId", "studentName", "checkInTime", "sessionId", "classId", "status"));
+    private static final Bson SESSION_FIELDS = Projections.fields(Projections.excludeId(), Projections.include(
+            "classId", "sessionId", "createdAt", "active"));
 
     private final MongoClient mongoClient;
+    private final MongoMetrics metrics;
     private final MongoDatabase database;
     private final MongoCollection<Document> sessionsCollection;
     private final MongoCollection<Document> attendanceCollection;
     private final MongoCollection<Document> classesCollection;
     private final MongoCollection<Document> studentsCollection;
+    private final MongoCollection<Document> sessionSummariesCollection;
+
+    // Typed views of the same collections, decoded straight into transfer objects
+    private final MongoCollection<ClassInfo> classInfoCollection;
+    private final MongoCollection<Student> studentObjectsCollection;
+    private final MongoCollection<Attendance> attendanceObjectsCollection;
+    private final MongoCollection<Session> sessionObjectsCollection;
+
+    // Local durable queue for session and check-in writes (null when disabled or handed over)
+    private volatile WriteAheadQueue writeQueue;
+
+    // Students this client has checked in or read back, by session; dropped when the session closes
+    private final Map<String, Set<String>> checkedIn = new ConcurrentHashMap<>();
+
+    // Students sent per insertMany during roster import
+    private int rosterBatchSize = DEFAULT_ROSTER_BATCH_SIZE;
 
     /**
      * Creates a new DatabaseManager and connects to MongoDB.
@@ -41,46 +120,341 @@ public class DatabaseManager {
      * @param databaseName Name of the database to use
      */
     public DatabaseManager(String connectionString, String databaseName) {
-        this.mongoClient = MongoClients.create(connectionString);
+        this(buildClientSettings(connectionString, new Properties(), new MongoMetrics()), databaseName, new Properties());
+    }
+
+    /**
+     * Creates a new DatabaseManager from explicit client settings.
+     * Per-operation write concerns are read from config (see buildClientSettings for the keys).
+     *
+     * @param settings Client settings, typically from buildClientSettings
+     * @param databaseName Name of the database to use
+     * @param config Configuration properties
+     */
+    public DatabaseManager(MongoClientSettings settings, String databaseName, Properties config) {
+        this.metrics = findMetrics(settings);
+        this.mongoClient = MongoClients.create(settings);
         this.database = mongoClient.getDatabase(databaseName);
         this.sessionsCollection = database.getCollection("sessions");
-        this.attendanceCollection = database.getCollection("attendance");
         this.classesCollection = database.getCollection("classes");
         this.studentsCollection = database.getCollection("students");
+        this.sessionSummariesCollection = database.getCollection("session_summaries");
+
+        // Check-ins may use a different write concern from the rest (e.g. w:1 for burst latency)
+        WriteConcern attendanceWriteConcern = parseWriteConcern(config.getProperty("attendanceWriteConcern"));
+        MongoCollection<Document> attendance = database.getCollection("attendance");
+        this.attendanceCollection = attendanceWriteConcern != null
+                ? attendance.withWriteConcern(attendanceWriteConcern)
+                : attendance;
+
+        MongoDatabase typedDatabase = database.withCodecRegistry(ModelCodecs.registry());
+        this.classInfoCollection = typedDatabase.getCollection("classes", ClassInfo.class);
+        this.studentObjectsCollection = typedDatabase.getCollection("students", Student.class);
+        this.attendanceObjectsCollection = typedDatabase.getCollection("attendance", Attendance.class);
+        this.sessionObjectsCollection = typedDatabase.getCollection("sessions", Session.class);
+
+        ensureIndexes();
+
+        this.writeQueue = openWriteQueue(config);
+    }
+
+    /**
+     * Opens the write-ahead queue unless writeQueueEnabled=false.
+     * The file defaults to pending_writes.jsonl and can be moved with writeQueueFile.
+     */
+    private WriteAheadQueue openWriteQueue(Properties config) {
+        if ("false".equalsIgnoreCase(config.getProperty("writeQueueEnabled", "true").trim())) {
+            return null;
+        }
+        Path file = Paths.get(config.getProperty("writeQueueFile", DEFAULT_WRITE_QUEUE_FILE));
+        try {
+            WriteAheadQueue queue = new WriteAheadQueue(file, this::applyQueuedWrites, WRITE_QUEUE_BATCH_SIZE);
+            queue.start();
+            return queue;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to open write queue, writes go directly to MongoDB", e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates the indexes the queries in this class depend on and verifies they exist.
+     * createIndexes is a no-op for indexes that are already present, so this is safe on every startup.
+     * The unique (sessionId, studentId) index is what makes markAttendance idempotent; duplicates
+     * from before it existed are removed first, since they would make its build fail.
+     */
+    private void ensureIndexes() {
+        removeDuplicateAttendance();
+        ensureIndexes(attendanceCollection, List.of(
+                new IndexModel(Indexes.ascending("sessionId", "studentId"),
+                        new IndexOptions().unique(true).name("sessionId_studentId_unique")),
+                // Covers getLatestSessionAttendance: the pipeline only reads classId and sessionId
+                new IndexModel(Indexes.ascending("classId", "sessionId"),
+                        new IndexOptions().name("classId_sessionId"))
+        ));
+        ensureIndexes(studentsCollection, List.of(
+                new IndexModel(Indexes.ascending("classId", "studentId"),
+                        new IndexOptions().name("classId_studentId"))
+        ));
+        ensureIndexes(classesCollection, List.of(
+                new IndexModel(Indexes.ascending("classId"), new IndexOptions().name("classId")),
+                new IndexModel(Indexes.ascending("active"), new IndexOptions().name("active"))
+        ));
+        ensureIndexes(sessionsCollection, List.of(
+                new IndexModel(Indexes.ascending("sessionId"), new IndexOptions().name("sessionId")),
+                new IndexModel(Indexes.ascending("active"), new IndexOptions().name("active"))
+        ));
+        ensureIndexes(sessionSummariesCollection, List.of(
+                new IndexModel(Indexes.ascending("sessionId"),
+                        new IndexOptions().unique(true).name("sessionId_unique")),
+                new IndexModel(Indexes.ascending("classId", "sessionId"),
+                        new IndexOptions().name("classId_sessionId"))
+        ));
+    }
+
+    /**
+     * Deletes duplicate check-ins (same sessionId and studentId) left from before the unique index
+     * existed, keeping the earliest of each, so the unique index can be built.
+     * Skipped once the index exists, since it keeps duplicates out from then on.
+     */
+    private void removeDuplicateAttendance() {
+        try {
+            for (Document index : attendanceCollection.listIndexes()) {
+                if ("sessionId_studentId_unique".equals(index.getString("name"))) {
+                    return;
+                }
+            }
+
+            List<Object> duplicates = new ArrayList<>();
+            for (Document group : attendanceCollection.aggregate(List.of(
+                    Aggregates.sort(Sorts.ascending("_id")),
+                    Aggregates.group(new Document("sessionId", "$sessionId").append("studentId", "$studentId"),
+                            Accumulators.push("ids", "$_id"), Accumulators.sum("count", 1)),
+                    Aggregates.match(Filters.gt("count", 1))
+            )).allowDiskUse(true)) {
+                List<?> ids = group.getList("ids", Object.class);
+                duplicates.addAll(ids.subList(1, ids.size()));
+            }
+            if (!duplicates.isEmpty()) {
+                long deleted = attendanceCollection.deleteMany(Filters.in("_id", duplicates)).getDeletedCount();
+                logger.log(Level.WARNING, "Removed " + deleted + " duplicate check-ins before building the unique index");
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to remove duplicate check-ins", e);
+        }
+    }
+
+    /**
+     * Creates the given indexes on a collection in one round trip, then lists the
+     * collection's indexes and logs any that are still missing.
+     *
+     * @param collection The collection to index
+     * @param indexes The indexes it should have
+     */
+    private void ensureIndexes(MongoCollection<Document> collection, List<IndexModel> indexes) {
+        String collectionName = collection.getNamespace().getCollectionName();
+        try {
+            collection.createIndexes(indexes);
+
+            Set<String> existing = new HashSet<>();
+            for (Document index : collection.listIndexes()) {
+                existing.add(index.getString("name"));
+            }
+            for (IndexModel index : indexes) {
+                if (!existing.contains(index.getOptions().getName())) {
+                    logger.log(Level.WARNING, "Index " + index.getOptions().getName()
+                            + " is missing on collection: " + collectionName);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to create indexes on collection: " + collectionName, e);
+        }
+    }
+
+    /**
+     * Builds MongoClient settings from a connection string and config.properties.
+     * Every key is optional; unset keys keep the driver (or connection string) defaults.
+     * <ul>
+     *   <li>mongoPoolMinSize, mongoPoolMaxSize - connection pool bounds</li>
+     *   <li>mongoPoolMaxWaitMs - how long a request waits for a free connection</li>
+     *   <li>mongoConnectTimeoutMs, mongoSocketTimeoutMs - socket timeouts</li>
+     *   <li>mongoCompressors - comma separated, in preference order: zstd, snappy, zlib</li>
+     *   <li>mongoWriteConcern - default write concern (e.g. majority, 1)</li>
+     *   <li>attendanceWriteConcern - write concern for check-ins only</li>
+     * </ul>
+     * The metrics listener is registered for pool and command events.
+     *
+     * @param connectionString MongoDB connection string
+     * @param config Configuration properties
+     * @param metrics Listener that records pool and command statistics
+     * @return The client settings
+     */
+    public static MongoClientSettings buildClientSettings(String connectionString, Properties config, MongoMetrics metrics) {
+        Integer poolMin = intProperty(config, "mongoPoolMinSize");
+        Integer poolMax = intProperty(config, "mongoPoolMaxSize");
+        Integer poolMaxWait = intProperty(config, "mongoPoolMaxWaitMs");
+        Integer connectTimeout = intProperty(config, "mongoConnectTimeoutMs");
+        Integer socketTimeout = intProperty(config, "mongoSocketTimeoutMs");
+
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .applyToConnectionPoolSettings(pool -> {
+                    if (poolMin != null) {
+                        pool.minSize(poolMin);
+                    }
+                    if (poolMax != null) {
+                        pool.maxSize(poolMax);
+                    }
+                    if (poolMaxWait != null) {
+                        pool.maxWaitTime(poolMaxWait, TimeUnit.MILLISECONDS);
+                    }
+                    pool.addConnectionPoolListener(metrics);
+                })
+                .applyToSocketSettings(socket -> {
+                    if (connectTimeout != null) {
+                        socket.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+                    }
+                    if (socketTimeout != null) {
+                        socket.readTimeout(socketTimeout, TimeUnit.MILLISECONDS);
+                    }
+                })
+                .addCommandListener(metrics);
+
+        String compressors = config.getProperty("mongoCompressors");
+        if (compressors != null && !compressors.trim().isEmpty()) {
+            List<MongoCompressor> compressorList = new ArrayList<>();
+            for (String name : compressors.split(",")) {
+                switch (name.trim().toLowerCase()) {
+                    case "zstd" -> compressorList.add(MongoCompressor.createZstdCompressor());
+                    case "snappy" -> compressorList.add(MongoCompressor.createSnappyCompressor());
+                    case "zlib" -> compressorList.add(MongoCompressor.createZlibCompressor());
+                    default -> logger.log(Level.WARNING, "Unknown MongoDB compressor ignored: " + name);
+                }
+            }
+            builder.compressorList(compressorList);
+        }
+
+        WriteConcern writeConcern = parseWriteConcern(config.getProperty("mongoWriteConcern"));
+        if (writeConcern != null) {
+            builder.writeConcern(writeConcern);
+        }
+
+        return builder.build();
+    }
+
+    private static Integer intProperty(Properties config, String key) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Parses a write concern: a node count ("1", "2") or a name ("majority", "acknowledged", ...).
+     *
+     * @param value The configured value
+     * @return The write concern, or null if unset or not recognized
+     */
+    private static WriteConcern parseWriteConcern(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return new WriteConcern(Integer.parseInt(trimmed));
+        }
+        WriteConcern writeConcern = WriteConcern.valueOf(trimmed.toUpperCase());
+        if (writeConcern == null) {
+            logger.log(Level.WARNING, "Unknown write concern ignored: " + value);
+        }
+        return writeConcern;
+    }
+
+    /**
+     * Finds the MongoMetrics listener registered in the settings.
+     *
+     * @throws IllegalArgumentException if the settings were not built with a MongoMetrics listener
+     */
+    private static MongoMetrics findMetrics(MongoClientSettings settings) {
+        for (CommandListener listener : settings.getCommandListeners()) {
+            if (listener instanceof MongoMetrics) {
+                return (MongoMetrics) listener;
+            }
+        }
+        throw new IllegalArgumentException("Client settings have no MongoMetrics listener; build them with buildClientSettings");
     }
 
     /**
      * Gets the singleton instance of DatabaseManager.
-     * Loads configuration from config.properties and creates instance if needed.
+     * Reads the cached configuration from ConfigManager and creates instance if needed.
+     * Later edits to rosterBatchSize apply to the running instance.
      *
      * @return The DatabaseManager singleton instance
      */
     public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
-            try {
-                Properties config = ConfigManager.loadConfig();
-                String connectionString = config.getProperty("mongoConnectionString");
-                String databaseName = config.getProperty("mongoDatabaseName");
-
-                if (connectionString == null || databaseName == null) {
-                    logger.log(Level.SEVERE, "MongoDB configuration missing in config.properties");
-                    throw new RuntimeException("MongoDB configuration not found");
-                }
+            ConfigSnapshot config = ConfigManager.getConfig();
+            String connectionString = config.get("mongoConnectionString");
+            String databaseName = config.get("mongoDatabaseName");
 
-                instance = new DatabaseManager(connectionString, databaseName);
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, "Failed to load configuration", e);
-                throw new RuntimeException("Failed to initialize DatabaseManager", e);
+            if (connectionString == null || databaseName == null) {
+                logger.log(Level.SEVERE, "MongoDB configuration missing in config.properties");
+                throw new RuntimeException("MongoDB configuration not found");
             }
+
+            Properties properties = config.toProperties();
+            MongoClientSettings settings = buildClientSettings(connectionString, properties, new MongoMetrics());
+            DatabaseManager manager = new DatabaseManager(settings, databaseName, properties);
+            manager.setRosterBatchSize(config.getInt("rosterBatchSize", DEFAULT_ROSTER_BATCH_SIZE));
+
+            configListener = (previous, current) -> {
+                if (previous.differs(current, "rosterBatchSize")) {
+                    manager.setRosterBatchSize(current.getInt("rosterBatchSize", DEFAULT_ROSTER_BATCH_SIZE));
+                }
+            };
+            ConfigManager.addListener(configListener);
+            instance = manager;
         }
         return instance;
     }
 
+    /**
+     * Closes the singleton so the next getInstance() connects with the current configuration.
+     * Its MongoClient and write queue are closed (the next instance takes over the queue file).
+     */
+    public static synchronized void resetInstance() {
+        DatabaseManager manager = instance;
+        detachInstance(manager);
+        if (manager != null) {
+            manager.close();
+        }
+    }
+
+    /**
+     * Stops handing out a manager as the singleton without closing it, so views still using it
+     * keep working while the next getInstance() connects with the current configuration.
+     * It stops following config edits.
+     *
+     * @param manager The manager to detach; nothing happens if it is no longer the singleton
+     */
+    static synchronized void detachInstance(DatabaseManager manager) {
+        if (manager == null || instance != manager) {
+            return;
+        }
+        if (configListener != null) {
+            ConfigManager.removeListener(configListener);
+            configListener = null;
+        }
+        instance = null;
+    }
+
     /**
      * Gets all classes from the database.
      *
      * @return List of all class documents
      */
+    @Override
     public List<Document> getAllClasses() {
         List<Document> classes = new ArrayList<>();
         try {
@@ -96,6 +470,7 @@ public class DatabaseManager {
      *
      * @return List of active class documents
      */
+    @Override
     public List<Document> getActiveClasses() {
         List<Document> classes = new ArrayList<>();
         try {
@@ -106,6 +481,25 @@ public class DatabaseManager {
         return classes;
     }
 
+    /**
+     * Gets active classes decoded directly into ClassInfo objects.
+     * Only the fields ClassInfo holds are fetched.
+     *
+     * @return List of active classes
+     */
+    @Override
+    public List<ClassInfo> getActiveClassList() {
+        List<ClassInfo> classes = new ArrayList<>();
+        try {
+            classInfoCollection.find(Filters.eq("active", true))
+                    .projection(CLASS_INFO_FIELDS)
+                    .into(classes);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve active classes", e);
+        }
+        return classes;
+    }
+
     /**
      * Creates a new attendance session in the database.
      *
@@ -114,15 +508,20 @@ public class DatabaseManager {
      * @param weatherData Current weather data as JSON string
      * @return The MongoDB ObjectId of the created session, or null if failed
      */
+    @Override
     public String createSession(String classId, String sessionId, String weatherData) {
         try {
-            Document session = new Document("classId", classId)
+            // The id is assigned here so it can be returned before a queued write reaches the database
+            Document session = new Document("_id", new ObjectId())
+                    .append("classId", classId)
                     .append("sessionId", sessionId)
                     .append("createdAt", LocalDateTime.now().toString())
                     .append("weatherData", weatherData)
                     .append("active", true);
 
-            sessionsCollection.insertOne(session);
+            if (!enqueue(new Document("op", OP_CREATE_SESSION).append("doc", session))) {
+                writeSession(session);
+            }
             logger.log(Level.INFO, "Session created: " + sessionId + " for class: " + classId);
 
             return session.getObjectId("_id").toString();
@@ -139,23 +538,11 @@ public class DatabaseManager {
      * @param sessionId The session identifier
      * @param studentId Student's unique ID
      * @param studentName Student's name
-     * @return true if successful, false otherwise
+     * @return true if recorded, false if the student already checked in or the write failed
      */
+    @Override
     public boolean markAttendance(String classId, String sessionId, String studentId, String studentName) {
         try {
-            // Check for duplicate check-in
-            Document existing = attendanceCollection.find(
-                Filters.and(
-                    Filters.eq("sessionId", sessionId),
-                    Filters.eq("studentId", studentId)
-                )
-            ).first();
-
-            if (existing != null) {
-                logger.log(Level.WARNING, "Duplicate check-in attempt: " + studentId + " in session " + sessionId);
-                return false;
-            }
-
             // Create attendance record
             Document attendance = new Document("classId", classId)
                     .append("sessionId", sessionId)
@@ -164,22 +551,78 @@ public class DatabaseManager {
                     .append("checkInTime", LocalDateTime.now().toString())
                     .append("status", "present");
 
+            // Duplicates are decided from local state only, so a check-in never waits on the database;
+            // the unique index drops any that slip past (e.g. made on another client)
+            Set<String> students = checkedIn.computeIfAbsent(sessionId, ignored -> ConcurrentHashMap.newKeySet());
+            if (findPendingAttendance(sessionId, studentId) != null || !students.add(studentId)) {
+                logger.log(Level.WARNING, "Duplicate check-in attempt: " + studentId + " in session " + sessionId);
+                return false;
+            }
+
+            if (writeQueue != null) {
+                attendance.append("_id", new ObjectId());
+                if (enqueue(new Document("op", OP_MARK_ATTENDANCE).append("doc", attendance))) {
+                    logger.log(Level.INFO, "Attendance queued: " + studentName + " (" + studentId + ")");
+                    return true;
+                }
+            }
+
+            // Single write: the unique (sessionId, studentId) index rejects duplicate check-ins
             attendanceCollection.insertOne(attendance);
             logger.log(Level.INFO, "Attendance marked: " + studentName + " (" + studentId + ")");
 
+            recordCheckInSummary(classId, sessionId, attendance.getString("status"), attendance.getString("checkInTime"));
+
             return true;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                logger.log(Level.WARNING, "Duplicate check-in attempt: " + studentId + " in session " + sessionId);
+            } else {
+                logger.log(Level.SEVERE, "Failed to mark attendance for: " + studentId, e);
+                forgetCheckIn(sessionId, studentId);
+            }
+            return false;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to mark attendance for: " + studentId, e);
+            forgetCheckIn(sessionId, studentId);
             return false;
         }
     }
 
+    /**
+     * Lets a student check in again after a check-in that was not recorded.
+     */
+    private void forgetCheckIn(String sessionId, String studentId) {
+        Set<String> students = checkedIn.get(sessionId);
+        if (students != null) {
+            students.remove(studentId);
+        }
+    }
+
+    /**
+     * Remembers the students of check-ins read back from the database, so later duplicate
+     * attempts on this client are refused without a round trip.
+     */
+    private void rememberCheckIns(String sessionId, List<Document> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Set<String> students = checkedIn.computeIfAbsent(sessionId, ignored -> ConcurrentHashMap.newKeySet());
+        for (Document record : records) {
+            String studentId = record.getString("studentId");
+            if (studentId != null) {
+                students.add(studentId);
+            }
+        }
+    }
+
     /**
      * Retrieves all attendance records for a specific session.
      *
      * @param sessionId The session identifier
      * @return List of attendance documents
      */
+    @Override
     public List<Document> getAttendanceBySession(String sessionId) {
         List<Document> records = new ArrayList<>();
         try {
@@ -189,15 +632,98 @@ public class DatabaseManager {
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to retrieve attendance for session: " + sessionId, e);
         }
+        mergePendingAttendance(records, sessionId);
+        rememberCheckIns(sessionId, records);
+        return records;
+    }
+
+    /**
+     * Retrieves the attendance records of a session decoded directly into Attendance objects.
+     *
+     * @param sessionId The session identifier
+     * @return List of attendance records
+     */
+    @Override
+    public List<Attendance> getAttendanceList(String sessionId) {
+        List<Attendance> records = new ArrayList<>();
+        try {
+            attendanceObjectsCollection.find(Filters.eq("sessionId", sessionId))
+                    .projection(ATTENDANCE_FIELDS)
+                    .into(records);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve attendance for session: " + sessionId, e);
+        }
         return records;
     }
 
+    /**
+     * Retrieves the check-ins of a session by the given students, e.g. those a poller has not
+     * seen checking in yet. Unlike a time watermark this never skips a record whose _id was
+     * generated by a client with a late clock, or that committed after a newer one; and as the
+     * list only names the students still missing, each poll shrinks as the class arrives.
+     * Served by the unique (sessionId, studentId) index.
+     *
+     * @param sessionId The session identifier
+     * @param studentIds Students to look for
+     * @return List of attendance documents containing only _id and studentId
+     */
+    @Override
+    public List<Document> getAttendanceOf(String sessionId, Collection<String> studentIds) {
+        List<Document> records = new ArrayList<>();
+        if (studentIds.isEmpty()) {
+            return records;
+        }
+        try {
+            attendanceCollection.find(Filters.and(Filters.eq("sessionId", sessionId), Filters.in("studentId", studentIds)))
+                    .projection(Projections.include("studentId"))
+                    .into(records);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve new attendance for session: " + sessionId, e);
+        }
+        mergePendingAttendance(records, sessionId);
+        Set<String> wanted = new HashSet<>(studentIds);
+        records.removeIf(record -> !wanted.contains(record.getString("studentId")));
+        rememberCheckIns(sessionId, records);
+        return records;
+    }
+
+    /**
+     * Subscribes to new check-ins for a session.
+     * The listener also receives the check-ins written before the change stream was open
+     * (the stream opens on a background thread), so none made right after createSession are missed.
+     *
+     * @param sessionId The session identifier
+     * @param listener Callback invoked on a background thread for each check-in
+     * @return The running subscription; close it when the session ends
+     */
+    @Override
+    public ChangeStreamSubscription subscribeToAttendance(String sessionId, AttendanceListener listener) {
+        return subscribeToAttendance(sessionId, listener, null);
+    }
+
+    /**
+     * Subscribes to new check-ins for a session, continuing after a previous subscription.
+     *
+     * @param sessionId The session identifier
+     * @param listener Callback invoked on a background thread for each check-in
+     * @param resumeToken Resume token from a previous subscription, or null to start from now
+     * @return The running subscription; close it when the session ends
+     */
+    public ChangeStreamSubscription subscribeToAttendance(String sessionId, AttendanceListener listener,
+                                                          BsonDocument resumeToken) {
+        ChangeStreamSubscription subscription =
+                new ChangeStreamSubscription(attendanceCollection, sessionId, listener, resumeToken);
+        subscription.start();
+        return subscription;
+    }
+
     /**
      * Retrieves all attendance records for a specific class.
      *
      * @param classId The class identifier
      * @return List of attendance documents
      */
+    @Override
     public List<Document> getAttendanceByClass(String classId) {
         List<Document> records = new ArrayList<>();
         try {
@@ -210,15 +736,49 @@ public class DatabaseManager {
         return records;
     }
 
+    /**
+     * Finds the most recent session of a class that has attendance, and its check-in count.
+     * Runs as a server-side aggregation so only one small document crosses the wire,
+     * no matter how much attendance history the class has.
+     * Session IDs are timestamp-based, so the lexicographically greatest one is the latest.
+     *
+     * @param classId The class identifier
+     * @return Document with "sessionId" and "count", or null if the class has no attendance
+     */
+    @Override
+    public Document getLatestSessionAttendance(String classId) {
+        try {
+            Document latest = attendanceCollection.aggregate(List.of(
+                    Aggregates.match(Filters.eq("classId", classId)),
+                    Aggregates.group("$sessionId", Accumulators.sum("count", 1)),
+                    Aggregates.sort(Sorts.descending("_id")),
+                    Aggregates.limit(1)
+            )).first();
+
+            if (latest == null) {
+                return null;
+            }
+            return new Document("sessionId", latest.getString("_id"))
+                    .append("count", latest.getInteger("count", 0));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve latest session attendance for class: " + classId, e);
+            return null;
+        }
+    }
+
     /**
      * Retrieves session information by session ID.
      *
      * @param sessionId The session identifier
      * @return Session document, or null if not found
      */
+    @Override
     public Document getSession(String sessionId) {
         try {
             Document session = sessionsCollection.find(Filters.eq("sessionId", sessionId)).first();
+            if (session == null) {
+                session = findPendingSession(sessionId);
+            }
             if (session != null) {
                 logger.log(Level.INFO, "Retrieved session: " + sessionId);
             } else {
@@ -227,7 +787,7 @@ public class DatabaseManager {
             return session;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to retrieve session: " + sessionId, e);
-            return null;
+            return findPendingSession(sessionId);
         }
     }
 
@@ -237,12 +797,13 @@ public class DatabaseManager {
      * @param sessionId The session identifier
      * @return true if successful, false otherwise
      */
+    @Override
     public boolean closeSession(String sessionId) {
         try {
-            sessionsCollection.updateOne(
-                Filters.eq("sessionId", sessionId),
-                Updates.set("active", false)
-            );
+            if (!enqueue(new Document("op", OP_CLOSE_SESSION).append("sessionId", sessionId))) {
+                writeSessionClosed(sessionId);
+            }
+            checkedIn.remove(sessionId);
             logger.log(Level.INFO, "Session closed: " + sessionId);
             return true;
         } catch (Exception e) {
@@ -251,11 +812,372 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Inserts a session document and opens its summary.
+     * Keyed on the client-assigned _id, so replaying it from the write queue is harmless.
+     */
+    private void writeSession(Document session) {
+        sessionsCollection.replaceOne(Filters.eq("_id", session.getObjectId("_id")), session,
+                new ReplaceOptions().upsert(true));
+        openSessionSummary(session.getString("classId"), session.getString("sessionId"));
+    }
+
+    /**
+     * Marks a session inactive and finalizes its summary. Idempotent.
+     */
+    private void writeSessionClosed(String sessionId) {
+        sessionsCollection.updateOne(
+            Filters.eq("sessionId", sessionId),
+            Updates.set("active", false)
+        );
+        finalizeSessionSummary(sessionId);
+    }
+
+    /**
+     * Inserts a run of queued check-ins with one unordered insertMany.
+     * Duplicate-key failures mean the student was already checked in (or the write was
+     * replayed) and are ignored; summaries are only updated for rows actually inserted.
+     * If some rows fail for another reason, the summaries of the rows that were inserted are
+     * still updated before the error is rethrown: the retry will see those rows as duplicates.
+     */
+    private void writeAttendanceBatch(List<Document> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Set<Integer> rejected = new HashSet<>();
+        MongoBulkWriteException failure = null;
+        try {
+            attendanceCollection.insertMany(records, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                rejected.add(error.getIndex());
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    failure = e;
+                }
+            }
+        }
+        for (int i = 0; i < records.size(); i++) {
+            if (!rejected.contains(i)) {
+                Document record = records.get(i);
+                recordCheckInSummary(record.getString("classId"), record.getString("sessionId"),
+                        record.getString("status"), record.getString("checkInTime"));
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Applies a batch drained from the write queue, in order.
+     * Consecutive check-ins are grouped into a single insertMany round trip.
+     * Any exception leaves the batch queued for retry.
+     */
+    private void applyQueuedWrites(List<Document> writes) {
+        List<Document> attendanceRun = new ArrayList<>();
+        for (Document write : writes) {
+            String op = write.getString("op");
+            if (OP_MARK_ATTENDANCE.equals(op)) {
+                attendanceRun.add(write.get("doc", Document.class));
+                continue;
+            }
+            writeAttendanceBatch(attendanceRun);
+            attendanceRun.clear();
+
+            if (OP_CREATE_SESSION.equals(op)) {
+                writeSession(write.get("doc", Document.class));
+            } else if (OP_CLOSE_SESSION.equals(op)) {
+                writeSessionClosed(write.getString("sessionId"));
+            } else {
+                logger.log(Level.WARNING, "Dropping queued write with unknown op: " + op);
+            }
+        }
+        writeAttendanceBatch(attendanceRun);
+    }
+
+    /**
+     * Appends a write to the local queue.
+     *
+     * @return true if queued, false if the queue is disabled or unavailable (write directly instead)
+     */
+    private boolean enqueue(Document write) {
+        WriteAheadQueue queue = writeQueue;
+        if (queue == null) {
+            return false;
+        }
+        try {
+            queue.append(write);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to queue write locally, writing directly", e);
+            return false;
+        }
+    }
+
+    private Document findPendingAttendance(String sessionId, String studentId) {
+        WriteAheadQueue queue = writeQueue;
+        if (queue == null) {
+            return null;
+        }
+        for (Document write : queue.getPending()) {
+            if (OP_MARK_ATTENDANCE.equals(write.getString("op"))) {
+                Document record = write.get("doc", Document.class);
+                if (sessionId.equals(record.getString("sessionId")) && studentId.equals(record.getString("studentId"))) {
+                    return record;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Document findPendingSession(String sessionId) {
+        WriteAheadQueue queue = writeQueue;
+        if (queue == null) {
+            return null;
+        }
+        Document session = null;
+        for (Document write : queue.getPending()) {
+            String op = write.getString("op");
+            if (OP_CREATE_SESSION.equals(op) && sessionId.equals(write.get("doc", Document.class).getString("sessionId"))) {
+                session = new Document(write.get("doc", Document.class));
+            } else if (OP_CLOSE_SESSION.equals(op) && session != null && sessionId.equals(write.getString("sessionId"))) {
+                session.put("active", false);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Adds queued check-ins for a session that the database has not seen yet to a read result.
+     *
+     * @param records Records read from the database; pending ones are appended
+     * @param sessionId The session identifier
+     */
+    private void mergePendingAttendance(List<Document> records, String sessionId) {
+        WriteAheadQueue queue = writeQueue;
+        if (queue == null || queue.size() == 0) {
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        for (Document record : records) {
+            seen.add(record.getString("studentId"));
+        }
+        for (Document write : queue.getPending()) {
+            if (!OP_MARK_ATTENDANCE.equals(write.getString("op"))) {
+                continue;
+            }
+            Document record = write.get("doc", Document.class);
+            if (sessionId.equals(record.getString("sessionId")) && seen.add(record.getString("studentId"))) {
+                records.add(record);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of writes acknowledged locally but not yet applied to MongoDB.
+     *
+     * @return Queued write count, 0 when the write queue is disabled
+     */
+    public int getPendingWriteCount() {
+        WriteAheadQueue queue = writeQueue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Closes the write queue so a newer instance can open the same file. Writes still queued
+     * stay in the file and are drained by that instance; later writes from this one go
+     * straight to MongoDB. Used while a view keeps this instance after a settings change.
+     */
+    void handOverWriteQueue() {
+        WriteAheadQueue queue = writeQueue;
+        writeQueue = null;
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    /**
+     * Creates the session_summaries projection for a new session.
+     * Counters are left unset until the first check-in; readers treat missing counters as 0.
+     *
+     * @param classId The class identifier
+     * @param sessionId The session identifier
+     */
+    private void openSessionSummary(String classId, String sessionId) {
+        try {
+            long rosterSize = studentsCollection.countDocuments(Filters.eq("classId", classId));
+            sessionSummariesCollection.updateOne(
+                Filters.eq("sessionId", sessionId),
+                Updates.combine(
+                    Updates.set("classId", classId),
+                    Updates.set("rosterSize", (int) rosterSize),
+                    Updates.set("openedAt", LocalDateTime.now().toString()),
+                    Updates.set("final", false)
+                ),
+                new UpdateOptions().upsert(true)
+            );
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to open session summary: " + sessionId, e);
+        }
+    }
+
+    /**
+     * Applies one check-in to the session summary with a single atomic update.
+     *
+     * @param classId The class identifier
+     * @param sessionId The session identifier
+     * @param status Attendance status counter to increment ("present" or "late")
+     * @param checkInTime ISO-8601 check-in time
+     */
+    private void recordCheckInSummary(String classId, String sessionId, String status, String checkInTime) {
+        try {
+            // Stored as BSON dates, as the web check-in does, so $min/$max compare instants
+            Date at = toDate(checkInTime);
+            sessionSummariesCollection.updateOne(
+                Filters.eq("sessionId", sessionId),
+                Updates.combine(
+                    Updates.setOnInsert("classId", classId),
+                    Updates.inc(status, 1),
+                    Updates.min("firstCheckIn", at),
+                    Updates.max("lastCheckIn", at)
+                ),
+                new UpdateOptions().upsert(true)
+            );
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to update session summary: " + sessionId, e);
+        }
+    }
+
+    /**
+     * Converts a check-in time to a Date: local date-times (as written by this class) are taken
+     * in the system zone, and times with an offset (as written by the web check-in) as they are.
+     */
+    static Date toDate(String checkInTime) {
+        try {
+            return Date.from(LocalDateTime.parse(checkInTime).atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            return Date.from(OffsetDateTime.parse(checkInTime).toInstant());
+        }
+    }
+
+    /**
+     * Finalizes a session summary: derives the absent count from the roster size
+     * and marks it final, in one pipeline update on the server.
+     *
+     * @param sessionId The session identifier
+     */
+    private void finalizeSessionSummary(String sessionId) {
+        try {
+            Document present = new Document("$ifNull", List.of("$present", 0));
+            Document late = new Document("$ifNull", List.of("$late", 0));
+            Document rosterSize = new Document("$ifNull", List.of("$rosterSize", 0));
+            Document absent = new Document("$max", List.of(0,
+                    new Document("$subtract", List.of(rosterSize, new Document("$add", List.of(present, late))))));
+
+            sessionSummariesCollection.updateOne(
+                Filters.eq("sessionId", sessionId),
+                List.of(new Document("$set", new Document("absent", absent)
+                        .append("closedAt", LocalDateTime.now().toString())
+                        .append("final", true)))
+            );
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to finalize session summary: " + sessionId, e);
+        }
+    }
+
+    /**
+     * Gets the attendance summary of a session with a single point lookup.
+     * Fields: classId, rosterSize, present, late, absent (after close), firstCheckIn,
+     * lastCheckIn, openedAt, closedAt and final. Counters may be missing when zero;
+     * firstCheckIn and lastCheckIn are dates.
+     *
+     * @param sessionId The session identifier
+     * @return Summary document, or null if not found
+     */
+    @Override
+    public Document getSessionSummary(String sessionId) {
+        try {
+            return sessionSummariesCollection.find(Filters.eq("sessionId", sessionId)).first();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve session summary: " + sessionId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the summary of the most recent session of a class.
+     *
+     * @param classId The class identifier
+     * @return Summary document, or null if the class has no summarized sessions
+     */
+    @Override
+    public Document getLatestSessionSummary(String classId) {
+        try {
+            return sessionSummariesCollection.find(Filters.eq("classId", classId))
+                    .sort(Sorts.descending("sessionId"))
+                    .first();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve latest session summary for class: " + classId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets when the most recent session of each class was opened, in one aggregation.
+     * The sort follows the classId_sessionId index backwards, so each group's first document
+     * is the class's latest session.
+     *
+     * @param classIds The class identifiers
+     * @return openedAt by classId; classes without a summarized session are left out
+     */
+    @Override
+    public Map<String, String> getLatestOpenedAt(Collection<String> classIds) {
+        Map<String, String> openedAt = new HashMap<>();
+        if (classIds.isEmpty()) {
+            return openedAt;
+        }
+        try {
+            for (Document latest : sessionSummariesCollection.aggregate(List.of(
+                    Aggregates.match(Filters.in("classId", classIds)),
+                    Aggregates.sort(Sorts.descending("classId", "sessionId")),
+                    Aggregates.group("$classId", Accumulators.first("openedAt", "$openedAt"))
+            ))) {
+                String time = latest.getString("openedAt");
+                if (time != null) {
+                    openedAt.put(latest.getString("_id"), time);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve latest session times", e);
+        }
+        return openedAt;
+    }
+
+    /**
+     * Gets active sessions decoded directly into Session objects.
+     * The stored weather snapshot is left out.
+     *
+     * @return List of active sessions
+     */
+    @Override
+    public List<Session> getActiveSessionList() {
+        List<Session> sessions = new ArrayList<>();
+        try {
+            sessionObjectsCollection.find(Filters.eq("active", true))
+                    .projection(SESSION_FIELDS)
+                    .into(sessions);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve active sessions", e);
+        }
+        return sessions;
+    }
+
     /**
      * Gets all active sessions.
      *
      * @return List of active session documents
      */
+    @Override
     public List<Document> getActiveSessions() {
         List<Document> sessions = new ArrayList<>();
         try {
@@ -279,81 +1201,133 @@ public class DatabaseManager {
      * @param filePath Path to the roster CSV file
      * @return true if successful, false otherwise
      */
+    @Override
     public boolean uploadRosterCsv(String filePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            // Parse class metadata (first 8 lines)
-            String className = br.readLine().split(",", 2)[1].trim();
-            String classId = br.readLine().split(",", 2)[1].trim();
-            String semester = br.readLine().split(",", 2)[1].trim();
-            int year = Integer.parseInt(br.readLine().split(",", 2)[1].trim());
-            String startDate = br.readLine().split(",", 2)[1].trim();
-            String endDate = br.readLine().split(",", 2)[1].trim();
-            String professorName = br.readLine().split(",", 2)[1].trim();
-            String city = br.readLine().split(",", 2)[1].trim();
-
-            // Create class document with active flag
-            Document classDoc = new Document("classId", classId)
-                    .append("className", className)
-                    .append("semester", semester)
-                    .append("year", year)
-                    .append("startDate", startDate)
-                    .append("endDate", endDate)
-                    .append("professorName", professorName)
-                    .append("city", city)
-                    .append("active", true);
+        return uploadRosterCsv(filePath, rosterBatchSize);
+    }
+
+    /**
+     * Uploads a class roster from CSV file using batched bulk inserts.
+     * The whole file is parsed before anything is written, then the class document
+     * and its roster are swapped inside a single transaction so a failed upload
+     * never leaves a class with a partial roster.
+     *
+     * @param filePath Path to the roster CSV file
+     * @param batchSize Maximum number of students sent per insertMany round trip
+     * @return true if successful, false otherwise
+     */
+    @Override
+    public boolean uploadRosterCsv(String filePath, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        Document classDoc;
+        List<Document> studentDocs;
+        String city;
 
-            // Check if class already exists
-            Document existing = classesCollection.find(Filters.eq("classId", classId)).first();
-            if (existing != null) {
-                // Update existing class document and set active = true
-                classesCollection.replaceOne(Filters.eq("classId", classId), classDoc);
+        try {
+            // Parse the whole file before touching the database
+            RosterCsv roster = RosterCsv.parse(filePath);
+            // Store the city's location with the class so weather requests never wait on the lookup
+            // later, and the admin view can fetch every class's weather in group requests. Only what
+            // is cached already: the import never waits on the weather API
+            city = roster.getClassDocument().getString("city");
+            roster.setCoordinates(GeocodeCache.getInstance().lookup(city));
+            roster.setCityId(GeocodeCache.getInstance().lookupId(city));
+            classDoc = roster.getClassDocument();
+            studentDocs = roster.getStudentDocuments();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to upload roster from: " + filePath, e);
+            return false;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing roster CSV: " + filePath, e);
+            return false;
+        }
+
+        String classId = classDoc.getString("classId");
+        long startNanos = System.nanoTime();
+
+        try (ClientSession session = mongoClient.startSession()) {
+            // withTransaction may re-run the body on transient errors, so the count restarts each attempt
+            int roundTrips = session.withTransaction(() -> {
+                int trips = 0;
+
+                // Insert the class or replace the existing one (re-activating it)
+                classesCollection.replaceOne(session, Filters.eq("classId", classId), classDoc,
+                        new ReplaceOptions().upsert(true));
+                trips++;
 
                 // Delete old students to replace with new roster
-                studentsCollection.deleteMany(Filters.eq("classId", classId));
-            } else {
-                // Insert new class
-                classesCollection.insertOne(classDoc);
-            }
+                studentsCollection.deleteMany(session, Filters.eq("classId", classId));
+                trips++;
 
-            // Skip blank line and header
-            br.readLine(); // blank line
-            br.readLine(); // "StudentName,StudentID" header
-
-            // Parse students
-            String line;
-            int studentCount = 0;
-            while ((line = br.readLine()) != null && !line.trim().isEmpty()) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    String studentName = parts[0].trim();
-                    String studentId = parts[1].trim();
-
-                    Document studentDoc = new Document("studentId", studentId)
-                            .append("studentName", studentName)
-                            .append("classId", classId);
-
-                    studentsCollection.insertOne(studentDoc);
-                    studentCount++;
+                // One unordered insertMany per batch
+                for (int i = 0; i < studentDocs.size(); i += batchSize) {
+                    List<Document> batch = studentDocs.subList(i, Math.min(i + batchSize, studentDocs.size()));
+                    studentsCollection.insertMany(session, batch, new InsertManyOptions().ordered(false));
+                    trips++;
                 }
-            }
+                return trips;
+            }) + 1; // commitTransaction
 
+            double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+            logger.log(Level.INFO, String.format(
+                    "Roster imported for %s: %d students, %d round trips, %.1f rows/sec",
+                    classId, studentDocs.size(), roundTrips, studentDocs.size() / seconds));
+
+            if (!classDoc.containsKey("lat") || !classDoc.containsKey("cityId")) {
+                // Resolved on the prewarm thread instead; the class document is updated once it is known
+                WeatherPrewarmer.getInstance().resolveCity(city,
+                        (coordinates, cityId) -> storeCityLocation(classId, coordinates, cityId));
+            }
             return true;
 
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to upload roster from: " + filePath, e);
-            return false;
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error processing roster CSV: " + filePath, e);
+            logger.log(Level.SEVERE, "Failed to import roster for class: " + classId, e);
             return false;
         }
     }
 
+    /**
+     * Stores a city location resolved after the roster import in the class document.
+     */
+    private void storeCityLocation(String classId, double[] coordinates, long cityId) {
+        List<Bson> updates = new ArrayList<>(List.of(
+                Updates.set("lat", coordinates[0]), Updates.set("lon", coordinates[1])));
+        if (cityId > 0) {
+            updates.add(Updates.set("cityId", cityId));
+        }
+        try {
+            classesCollection.updateOne(Filters.eq("classId", classId), Updates.combine(updates));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to store the city location of class: " + classId, e);
+        }
+    }
+
+    /**
+     * Sets the default number of students sent per round trip by uploadRosterCsv.
+     *
+     * @param rosterBatchSize Batch size, must be positive
+     */
+    public void setRosterBatchSize(int rosterBatchSize) {
+        if (rosterBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + rosterBatchSize);
+        }
+        this.rosterBatchSize = rosterBatchSize;
+    }
+
+    public int getRosterBatchSize() {
+        return rosterBatchSize;
+    }
+
     /**
      * Gets all students enrolled in a specific class.
      *
      * @param classId The class identifier
      * @return List of student documents
      */
+    @Override
     public List<Document> getStudentsByClass(String classId) {
         List<Document> students = new ArrayList<>();
         try {
@@ -366,6 +1340,25 @@ public class DatabaseManager {
         return students;
     }
 
+    /**
+     * Gets the students enrolled in a class decoded directly into Student objects.
+     *
+     * @param classId The class identifier
+     * @return List of students
+     */
+    @Override
+    public List<Student> getStudentList(String classId) {
+        List<Student> students = new ArrayList<>();
+        try {
+            studentObjectsCollection.find(Filters.eq("classId", classId))
+                    .projection(STUDENT_FIELDS)
+                    .into(students);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to retrieve students for class: " + classId, e);
+        }
+        return students;
+    }
+
     /**
      * Validates if a student is enrolled in a specific class.
      *
@@ -373,6 +1366,7 @@ public class DatabaseManager {
      * @param classId Class ID to check enrollment
      * @return Student document if enrolled, null if not found or not enrolled
      */
+    @Override
     public Document validateStudent(String studentId, String classId) {
         try {
             Document student = studentsCollection.find(
@@ -401,6 +1395,7 @@ public class DatabaseManager {
      * @param classId The class identifier
      * @return Class document, or null if not found
      */
+    @Override
     public Document getClassInfo(String classId) {
         try {
             Document classDoc = classesCollection.find(Filters.eq("classId", classId)).first();
@@ -424,6 +1419,7 @@ public class DatabaseManager {
      * @param classId The class identifier to soft delete
      * @return true if successful, false otherwise
      */
+    @Override
     public boolean deleteClass(String classId) {
         try {
             // Set active = false instead of actually deleting
@@ -445,12 +1441,24 @@ public class DatabaseManager {
     }
 
     /**
-     * Closes the MongoDB connection.
-     * Should be called when shutting down the application.
+     * Closes the MongoDB connection and logs the metrics collected over its lifetime.
+     * Called through RepositoryFactory.close() when the application stops.
      */
+    @Override
     public void close() {
         if (mongoClient != null) {
+            logger.log(Level.INFO, "MongoDB metrics at shutdown:\n" + metrics);
+            handOverWriteQueue();
             mongoClient.close();
         }
     }
+
+    /**
+     * Gets live connection pool and command latency statistics.
+     *
+     * @return The metrics recorded by the client's listeners
+     */
+    public MongoMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -0,0 +1,510 @@
+package com.weatherboys.weatherguard;
+
+import com.weatherboys.model.Attendance;
+import com.weatherboys.model.ClassInfo;
+import com.weatherboys.model.Session;
+import com.weatherboys.model.Student;
+import com.weatherboys.weatherguard.Weather.GeocodeCache;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * InMemoryAttendanceRepository keeps classes, rosters, sessions and check-ins in
+ * concurrent in-process maps, so the attendance system can be tested and benchmarked
+ * without a MongoDB deployment.
+ *
+ * It follows the same rules as DatabaseManager:
+ * - A student checks in at most once per session (putIfAbsent plays the unique index)
+ * - Deleting a class only clears its active flag
+ * - Session summaries are updated on every check-in and finalized on close
+ *
+ * Every lookup the application makes is served from an index rather than a scan:
+ * students by (classId, studentId), check-ins by (sessionId, studentId) and by
+ * (sessionId, _id) for reads in check-in order, and session ids per class for "latest session" queries.
+ * Stored documents are never handed out; readers receive copies.
+ */
+public class InMemoryAttendanceRepository implements AttendanceRepository {
+
+    private static final Logger logger = Logger.getLogger(InMemoryAttendanceRepository.class.getName());
+
+    private final ConcurrentMap<String, Document> classes = new ConcurrentHashMap<>();
+
+    // classId -> (studentId -> student); each roster is replaced as a whole on import
+    private final ConcurrentMap<String, Map<String, Document>> rosters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Document> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Document> summaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SessionAttendance> attendance = new ConcurrentHashMap<>();
+
+    // classId -> session ids, ordered so the last one is the latest (session ids are timestamp-based)
+    private final ConcurrentMap<String, ConcurrentSkipListSet<String>> summarySessionsByClass = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListSet<String>> attendanceSessionsByClass = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CopyOnWriteArrayList<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Check-ins of one session, indexed by student (uniqueness) and by _id (check-in order).
+     */
+    private static class SessionAttendance {
+        final ConcurrentMap<String, Document> byStudent = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<ObjectId, Document> byId = new ConcurrentSkipListMap<>();
+    }
+
+    // ---- Classes ----
+
+    @Override
+    public List<Document> getAllClasses() {
+        List<Document> result = new ArrayList<>();
+        for (Document classDoc : classes.values()) {
+            result.add(new Document(classDoc));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Document> getActiveClasses() {
+        List<Document> result = new ArrayList<>();
+        for (Document classDoc : classes.values()) {
+            if (classDoc.getBoolean("active", false)) {
+                result.add(new Document(classDoc));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<ClassInfo> getActiveClassList() {
+        List<ClassInfo> result = new ArrayList<>();
+        for (Document classDoc : classes.values()) {
+            if (classDoc.getBoolean("active", false)) {
+                ClassInfo classInfo = new ClassInfo(
+                        classDoc.getString("classId"),
+                        classDoc.getString("className"),
+                        classDoc.getString("semester"),
+                        classDoc.getInteger("year", 0),
+                        classDoc.getString("professorName"),
+                        classDoc.getString("city"),
+                        classDoc.getString("startDate"),
+                        classDoc.getString("endDate"));
+                if (classDoc.containsKey("lat") && classDoc.containsKey("lon")) {
+                    classInfo.setLatitude(classDoc.getDouble("lat"));
+                    classInfo.setLongitude(classDoc.getDouble("lon"));
+                }
+                if (classDoc.containsKey("cityId")) {
+                    classInfo.setCityId(classDoc.get("cityId", Number.class).longValue());
+                }
+                result.add(classInfo);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Document getClassInfo(String classId) {
+        Document classDoc = classes.get(classId);
+        return classDoc != null ? new Document(classDoc) : null;
+    }
+
+    @Override
+    public boolean deleteClass(String classId) {
+        boolean[] modified = {false};
+        classes.computeIfPresent(classId, (id, classDoc) -> {
+            if (!classDoc.getBoolean("active", false)) {
+                return classDoc;
+            }
+            modified[0] = true;
+            return new Document(classDoc).append("active", false);
+        });
+        if (!modified[0]) {
+            logger.log(Level.WARNING, "Class not found for deletion: " + classId);
+        }
+        return modified[0];
+    }
+
+    // ---- Rosters ----
+
+    @Override
+    public boolean uploadRosterCsv(String filePath) {
+        return uploadRosterCsv(filePath, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Imports a roster CSV. The roster is swapped in with a single map update,
+     * so readers see either the old roster or the new one; batchSize is only validated.
+     */
+    @Override
+    public boolean uploadRosterCsv(String filePath, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        RosterCsv roster;
+        try {
+            roster = RosterCsv.parse(filePath);
+            // Only coordinates and IDs that are already known; this engine never goes to the network
+            String city = roster.getClassDocument().getString("city");
+            roster.setCoordinates(GeocodeCache.getInstance().lookup(city));
+            roster.setCityId(GeocodeCache.getInstance().lookupId(city));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to upload roster from: " + filePath, e);
+            return false;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing roster CSV: " + filePath, e);
+            return false;
+        }
+
+        Map<String, Document> students = new LinkedHashMap<>();
+        for (Document student : roster.getStudentDocuments()) {
+            students.put(student.getString("studentId"), student);
+        }
+
+        String classId = roster.getClassId();
+        classes.put(classId, roster.getClassDocument());
+        rosters.put(classId, Collections.unmodifiableMap(students));
+        return true;
+    }
+
+    @Override
+    public List<Document> getStudentsByClass(String classId) {
+        List<Document> result = new ArrayList<>();
+        for (Document student : rosters.getOrDefault(classId, Map.of()).values()) {
+            result.add(new Document(student));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Student> getStudentList(String classId) {
+        List<Student> result = new ArrayList<>();
+        for (Document student : rosters.getOrDefault(classId, Map.of()).values()) {
+            result.add(new Student(student.getString("studentId"), student.getString("studentName"), classId));
+        }
+        return result;
+    }
+
+    @Override
+    public Document validateStudent(String studentId, String classId) {
+        Document student = rosters.getOrDefault(classId, Map.of()).get(studentId);
+        return student != null ? new Document(student) : null;
+    }
+
+    // ---- Sessions ----
+
+    @Override
+    public String createSession(String classId, String sessionId, String weatherData) {
+        Document session = new Document("_id", new ObjectId())
+                .append("classId", classId)
+                .append("sessionId", sessionId)
+                .append("createdAt", LocalDateTime.now().toString())
+                .append("weatherData", weatherData)
+                .append("active", true);
+        sessions.put(sessionId, session);
+
+        int rosterSize = rosters.getOrDefault(classId, Map.of()).size();
+        summaries.compute(sessionId, (id, old) -> {
+            Document summary = old != null ? new Document(old) : new Document("sessionId", id);
+            return summary.append("classId", classId)
+                    .append("rosterSize", rosterSize)
+                    .append("openedAt", LocalDateTime.now().toString())
+                    .append("final", false);
+        });
+        index(summarySessionsByClass, classId, sessionId);
+
+        return session.getObjectId("_id").toString();
+    }
+
+    @Override
+    public Document getSession(String sessionId) {
+        Document session = sessions.get(sessionId);
+        return session != null ? new Document(session) : null;
+    }
+
+    @Override
+    public boolean closeSession(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, session) -> new Document(session).append("active", false));
+        summaries.computeIfPresent(sessionId, (id, old) -> {
+            Document summary = new Document(old);
+            int absent = summary.getInteger("rosterSize", 0)
+                    - summary.getInteger("present", 0) - summary.getInteger("late", 0);
+            return summary.append("absent", Math.max(0, absent))
+                    .append("closedAt", LocalDateTime.now().toString())
+                    .append("final", true);
+        });
+        return true;
+    }
+
+    @Override
+    public List<Document> getActiveSessions() {
+        List<Document> result = new ArrayList<>();
+        for (Document session : sessions.values()) {
+            if (session.getBoolean("active", false)) {
+                result.add(new Document(session));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Session> getActiveSessionList() {
+        List<Session> result = new ArrayList<>();
+        for (Document session : sessions.values()) {
+            if (session.getBoolean("active", false)) {
+                // The stored weather snapshot is left out, as in DatabaseManager
+                result.add(new Session(session.getString("classId"), session.getString("sessionId"),
+                        LocalDateTime.parse(session.getString("createdAt")), null, true));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Document getSessionSummary(String sessionId) {
+        Document summary = summaries.get(sessionId);
+        return summary != null ? new Document(summary) : null;
+    }
+
+    @Override
+    public Document getLatestSessionSummary(String classId) {
+        String sessionId = latest(summarySessionsByClass, classId);
+        return sessionId != null ? getSessionSummary(sessionId) : null;
+    }
+
+    @Override
+    public Map<String, String> getLatestOpenedAt(Collection<String> classIds) {
+        Map<String, String> openedAt = new LinkedHashMap<>();
+        for (String classId : classIds) {
+            String sessionId = latest(summarySessionsByClass, classId);
+            Document summary = sessionId != null ? summaries.get(sessionId) : null;
+            if (summary != null && summary.getString("openedAt") != null) {
+                openedAt.put(classId, summary.getString("openedAt"));
+            }
+        }
+        return openedAt;
+    }
+
+    // ---- Attendance ----
+
+    @Override
+    public boolean markAttendance(String classId, String sessionId, String studentId, String studentName) {
+        Document record = new Document("_id", new ObjectId())
+                .append("classId", classId)
+                .append("sessionId", sessionId)
+                .append("studentId", studentId)
+                .append("studentName", studentName)
+                .append("checkInTime", LocalDateTime.now().toString())
+                .append("status", "present");
+
+        SessionAttendance bucket = attendance.computeIfAbsent(sessionId, id -> new SessionAttendance());
+        if (bucket.byStudent.putIfAbsent(studentId, record) != null) {
+            logger.log(Level.FINE, "Duplicate check-in attempt: " + studentId + " in session " + sessionId);
+            return false;
+        }
+        bucket.byId.put(record.getObjectId("_id"), record);
+        index(attendanceSessionsByClass, classId, sessionId);
+
+        String status = record.getString("status");
+        Date checkInTime = DatabaseManager.toDate(record.getString("checkInTime"));
+        summaries.compute(sessionId, (id, old) -> {
+            Document summary = old != null ? new Document(old) : new Document("sessionId", id).append("classId", classId);
+            Date first = summary.getDate("firstCheckIn");
+            Date last = summary.getDate("lastCheckIn");
+            return summary.append(status, summary.getInteger(status, 0) + 1)
+                    .append("firstCheckIn", first == null || checkInTime.before(first) ? checkInTime : first)
+                    .append("lastCheckIn", last == null || checkInTime.after(last) ? checkInTime : last);
+        });
+        index(summarySessionsByClass, classId, sessionId);
+
+        notifySubscribers(sessionId, record);
+        return true;
+    }
+
+    @Override
+    public List<Document> getAttendanceBySession(String sessionId) {
+        List<Document> result = new ArrayList<>();
+        SessionAttendance bucket = attendance.get(sessionId);
+        if (bucket != null) {
+            for (Document record : bucket.byId.values()) {
+                result.add(new Document(record));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Attendance> getAttendanceList(String sessionId) {
+        List<Attendance> result = new ArrayList<>();
+        SessionAttendance bucket = attendance.get(sessionId);
+        if (bucket != null) {
+            for (Document record : bucket.byId.values()) {
+                result.add(new Attendance(
+                        record.getString("studentId"),
+                        record.getString("studentName"),
+                        LocalDateTime.parse(record.getString("checkInTime")),
+                        record.getString("sessionId"),
+                        record.getString("classId"),
+                        record.getString("status")));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Document> getAttendanceOf(String sessionId, Collection<String> studentIds) {
+        List<Document> result = new ArrayList<>();
+        SessionAttendance bucket = attendance.get(sessionId);
+        if (bucket != null) {
+            for (String studentId : new LinkedHashSet<>(studentIds)) {
+                Document record = bucket.byStudent.get(studentId);
+                if (record != null) {
+                    result.add(new Document("_id", record.getObjectId("_id")).append("studentId", studentId));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Document> getAttendanceByClass(String classId) {
+        List<Document> result = new ArrayList<>();
+        for (String sessionId : attendanceSessionsByClass.getOrDefault(classId, new ConcurrentSkipListSet<>())) {
+            SessionAttendance bucket = attendance.get(sessionId);
+            for (Document record : bucket.byId.values()) {
+                if (classId.equals(record.getString("classId"))) {
+                    result.add(new Document(record));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Document getLatestSessionAttendance(String classId) {
+        String sessionId = latest(attendanceSessionsByClass, classId);
+        if (sessionId == null) {
+            return null;
+        }
+        int count = 0;
+        for (Document record : attendance.get(sessionId).byId.values()) {
+            if (classId.equals(record.getString("classId"))) {
+                count++;
+            }
+        }
+        return new Document("sessionId", sessionId).append("count", count);
+    }
+
+    /**
+     * Subscribes to new check-ins for a session.
+     * Check-ins already stored are delivered first, on the calling thread, as the change stream
+     * catch-up does; later ones on the thread that records each check-in.
+     */
+    @Override
+    public AttendanceSubscription subscribeToAttendance(String sessionId, AttendanceListener listener) {
+        Subscription subscription = new Subscription(sessionId, listener);
+        subscriptions.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+        // Catch up like the change stream does; registered first, so a check-in recorded meanwhile
+        // is not missed, and delivered at most once
+        SessionAttendance bucket = attendance.get(sessionId);
+        if (bucket != null) {
+            for (Document record : bucket.byId.values()) {
+                subscription.deliver(record);
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Drops every subscription. Stored data is kept, so the repository can still be read.
+     */
+    @Override
+    public void close() {
+        for (List<Subscription> list : subscriptions.values()) {
+            for (Subscription subscription : list) {
+                subscription.close();
+            }
+        }
+        subscriptions.clear();
+    }
+
+    private void notifySubscribers(String sessionId, Document record) {
+        List<Subscription> list = subscriptions.get(sessionId);
+        if (list == null) {
+            return;
+        }
+        for (Subscription subscription : list) {
+            subscription.deliver(record);
+        }
+    }
+
+    private static void index(ConcurrentMap<String, ConcurrentSkipListSet<String>> index, String classId, String sessionId) {
+        if (classId != null) {
+            index.computeIfAbsent(classId, id -> new ConcurrentSkipListSet<>()).add(sessionId);
+        }
+    }
+
+    private static String latest(ConcurrentMap<String, ConcurrentSkipListSet<String>> index, String classId) {
+        ConcurrentSkipListSet<String> sessionIds = index.get(classId);
+        return sessionIds == null || sessionIds.isEmpty() ? null : sessionIds.last();
+    }
+
+    private class Subscription implements AttendanceSubscription {
+        private final String sessionId;
+        private final AttendanceListener listener;
+        // Students already passed to the listener, so the catch-up and live check-ins never overlap
+        private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        Subscription(String sessionId, AttendanceListener listener) {
+            this.sessionId = sessionId;
+            this.listener = listener;
+        }
+
+        void deliver(Document record) {
+            if (closed || !delivered.add(record.getString("studentId"))) {
+                return;
+            }
+            try {
+                listener.onCheckIn(new Document(record));
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Attendance listener failed for session: " + sessionId, e);
+            }
+        }
+
+        @Override
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            List<Subscription> list = subscriptions.get(sessionId);
+            if (list != null) {
+                list.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.weatherboys.weatherguard;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MongoMetrics records connection pool and command statistics from driver events.
+ * Registered on the MongoClient by DatabaseManager; read it to size the pool for
+ * check-in bursts (checkout wait and connections in use) and to see per-command latency.
+ */
+public class MongoMetrics implements ConnectionPoolListener, CommandListener {
+
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    private final LongAdder checkoutFailures = new LongAdder();
+    private final AtomicInteger connectionsInUse = new AtomicInteger();
+    private final AtomicInteger peakConnectionsInUse = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final Map<String, LatencyHistogram> commandLatency = new ConcurrentHashMap<>();
+    private final LongAdder commandFailures = new LongAdder();
+
+    // Connection pool events
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkoutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        int inUse = connectionsInUse.incrementAndGet();
+        peakConnectionsInUse.accumulateAndGet(inUse, Math::max);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkoutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        checkoutFailures.increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        connectionsInUse.decrementAndGet();
+    }
+
+    // Command events
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        latencyFor(event.getCommandName()).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        latencyFor(event.getCommandName()).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        commandFailures.increment();
+    }
+
+    private LatencyHistogram latencyFor(String commandName) {
+        return commandLatency.computeIfAbsent(commandName, name -> new LatencyHistogram());
+    }
+
+    // Getters
+
+    public LatencyHistogram getCheckoutWait() {
+        return checkoutWait;
+    }
+
+    public long getCheckoutFailures() {
+        return checkoutFailures.sum();
+    }
+
+    public int getConnectionsInUse() {
+        return connectionsInUse.get();
+    }
+
+    public int getPeakConnectionsInUse() {
+        return peakConnectionsInUse.get();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Gets latency histograms keyed by command name (find, insert, update, aggregate, ...).
+     *
+     * @return Sorted copy of the per-command histograms
+     */
+    public Map<String, LatencyHistogram> getCommandLatency() {
+        return new TreeMap<>(commandLatency);
+    }
+
+    public long getCommandFailures() {
+        return commandFailures.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Pool: open=").append(getOpenConnections())
+          .append(" inUse=").append(getConnectionsInUse())
+          .append(" peakInUse=").append(getPeakConnectionsInUse())
+          .append(" checkoutFailures=").append(getCheckoutFailures())
+          .append("\n  checkout wait: ").append(checkoutWait);
+        for (Map.Entry<String, LatencyHistogram> entry : getCommandLatency().entrySet()) {
+            sb.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        sb.append("\n  command failures: ").append(getCommandFailures());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.weatherboys.weatherguard;
+
+/**
+ * PollingSchedule decides how long to wait between incremental attendance polls.
+ * Polls stay fast while students are arriving (the opening minutes of a session, or
+ * right after a poll that found new check-ins) and back off exponentially once the
+ * session goes quiet, up to a maximum interval.
+ */
+public class PollingSchedule {
+
+    public static final long DEFAULT_FAST_MILLIS = 2_000;
+    public static final long DEFAULT_MAX_MILLIS = 30_000;
+    public static final long DEFAULT_WARMUP_MILLIS = 5 * 60 * 1000;
+
+    private final long fastMillis;
+    private final long maxMillis;
+    private final long warmupMillis;
+    private final long startMillis;
+    private long currentMillis;
+
+    /**
+     * Creates a schedule with the default cadence (2s fast, 30s max, 5 minute warm-up).
+     *
+     * @param startMillis Session start time in epoch milliseconds
+     */
+    public PollingSchedule(long startMillis) {
+        this(DEFAULT_FAST_MILLIS, DEFAULT_MAX_MILLIS, DEFAULT_WARMUP_MILLIS, startMillis);
+    }
+
+    /**
+     * Creates a schedule with a custom cadence.
+     *
+     * @param fastMillis Interval used during warm-up and check-in bursts
+     * @param maxMillis Longest interval reached while the session is quiet
+     * @param warmupMillis How long after the start polls stay fast regardless of activity
+     * @param startMillis Session start time in epoch milliseconds
+     */
+    public PollingSchedule(long fastMillis, long maxMillis, long warmupMillis, long startMillis) {
+        if (fastMillis <= 0 || maxMillis < fastMillis) {
+            throw new IllegalArgumentException("Invalid polling interval range: " + fastMillis + "-" + maxMillis);
+        }
+        this.fastMillis = fastMillis;
+        this.maxMillis = maxMillis;
+        this.warmupMillis = warmupMillis;
+        this.startMillis = startMillis;
+        this.currentMillis = fastMillis;
+    }
+
+    /**
+     * Computes the delay before the next poll.
+     *
+     * @param newRecords Number of new check-ins the last poll returned
+     * @param nowMillis Current time in epoch milliseconds
+     * @return Delay in milliseconds
+     */
+    public long nextDelay(int newRecords, long nowMillis) {
+        if (newRecords > 0 || nowMillis - startMillis < warmupMillis) {
+            currentMillis = fastMillis;
+        } else {
+            currentMillis = Math.min(currentMillis * 2, maxMillis);
+        }
+        return currentMillis;
+    }
+
+    public long getCurrentDelay() {
+        return currentMillis;
+    }
+}
@@ -2,12 +2,12 @@ package com.weatherboys.weatherguard;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -28,6 +28,10 @@ public class QRCodeGenerator {
     private static final int DEFAULT_WIDTH = 300;
     private static final int DEFAULT_HEIGHT = 300;
 
+    // Opaque black and white in premultiplied ARGB
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
     /**
      * Generates a QR code for a class attendance session.
      *
@@ -46,7 +50,7 @@ public class QRCodeGenerator {
      * @param baseUrl The base URL of the student check-in portal
      * @param width Width of the QR code image in pixels
      * @param height Height of the QR code image in pixels
-     * @return BufferedImage containing the QR code, or null if generation fails
+     * @return TYPE_INT_ARGB_PRE BufferedImage containing the QR code, or null if generation fails
      */
     public static BufferedImage generateSessionQRCode(String classId, String baseUrl, int width, int height) {
         if (classId == null || classId.trim().isEmpty()) {
@@ -71,7 +75,7 @@ public class QRCodeGenerator {
         try {
             QRCodeWriter qrCodeWriter = new QRCodeWriter();
             BitMatrix bitMatrix = qrCodeWriter.encode(checkInUrl, BarcodeFormat.QR_CODE, width, height);
-            BufferedImage qrImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
+            BufferedImage qrImage = toImage(bitMatrix);
 
             // logger.log(Level.INFO, "QR code generated successfully for class: " + classId);
             return qrImage;
@@ -82,6 +86,27 @@ public class QRCodeGenerator {
         }
     }
 
+    /**
+     * Writes the QR modules straight into a premultiplied ARGB raster, the layout JavaFX
+     * displays without conversion.
+     *
+     * @param bitMatrix The encoded QR code
+     * @return TYPE_INT_ARGB_PRE image of the matrix
+     */
+    private static BufferedImage toImage(BitMatrix bitMatrix) {
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = bitMatrix.get(x, y) ? BLACK : WHITE;
+            }
+        }
+        return image;
+    }
+
     /**
      * Generates a unique session ID based on current timestamp.
      * Format: YYYYMMDD_HHMMSS
@@ -0,0 +1,168 @@
+package com.weatherboys.weatherguard;
+
+import com.weatherboys.weatherguard.Weather.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RepositoryFactory selects the AttendanceRepository shared by the controllers.
+ * The "repository" key in config.properties chooses the engine:
+ * - mongo (default): DatabaseManager
+ * - memory: InMemoryAttendanceRepository, for demos and load tests without a database
+ * When the engine or connection settings change in the file, the next call builds a new repository.
+ *
+ * Views hold their repository for as long as they are shown: they take it with acquire() and give
+ * it back with release(). A repository replaced by a settings change stays open until its last
+ * holder releases it, so a running session keeps its MongoClient; only views opened afterwards
+ * use the new settings.
+ */
+public final class RepositoryFactory {
+
+    private static final Logger logger = Logger.getLogger(RepositoryFactory.class.getName());
+
+    // Keys that need a new repository (and a new MongoClient) to take effect
+    private static final String[] CONNECTION_KEYS = {
+            "repository", "mongoConnectionString", "mongoDatabaseName",
+            "mongoPoolMinSize", "mongoPoolMaxSize", "mongoPoolMaxWaitMs", "mongoConnectTimeoutMs",
+            "mongoSocketTimeoutMs", "mongoCompressors", "mongoWriteConcern", "attendanceWriteConcern",
+            "writeQueueEnabled", "writeQueueFile"
+    };
+
+    private static AttendanceRepository repository;
+
+    // Views holding each repository handed out by acquire(), by identity
+    private static final Map<AttendanceRepository, Integer> holders = new IdentityHashMap<>();
+
+    // Repositories replaced by a settings change while views still held them
+    private static final List<AttendanceRepository> retired = new ArrayList<>();
+
+    static {
+        // Views opened after the edit get a repository built from the new settings
+        ConfigManager.addListener((previous, current) -> {
+            if (previous.differs(current, CONNECTION_KEYS)) {
+                logger.log(Level.INFO, "Database settings changed; reconnecting on next use");
+                retire();
+            }
+        });
+    }
+
+    private RepositoryFactory() {
+    }
+
+    /**
+     * Gets the shared repository, creating it from config on first use.
+     *
+     * @return The configured AttendanceRepository
+     */
+    public static synchronized AttendanceRepository getRepository() {
+        if (repository == null) {
+            String engine = ConfigManager.getConfig().get("repository", "mongo");
+            if (engine.equalsIgnoreCase("memory")) {
+                logger.log(Level.INFO, "Using in-memory attendance repository");
+                repository = new InMemoryAttendanceRepository();
+            } else {
+                // The new manager opens the write queue file, so older ones still in use write directly
+                for (AttendanceRepository old : retired) {
+                    if (old instanceof DatabaseManager manager) {
+                        manager.handOverWriteQueue();
+                    }
+                }
+                repository = DatabaseManager.getInstance();
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Gets the shared repository for a view, which must release() it when it is no longer shown.
+     * The repository stays open until then, even if the settings change meanwhile.
+     *
+     * @return The configured AttendanceRepository
+     */
+    public static synchronized AttendanceRepository acquire() {
+        AttendanceRepository current = getRepository();
+        holders.merge(current, 1, Integer::sum);
+        return current;
+    }
+
+    /**
+     * Gives back a repository taken with acquire(). A repository replaced by a settings change
+     * is closed when its last holder releases it.
+     *
+     * @param held The repository the view acquired; null is ignored
+     */
+    public static synchronized void release(AttendanceRepository held) {
+        Integer count = held == null ? null : holders.get(held);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            holders.put(held, count - 1);
+            return;
+        }
+        holders.remove(held);
+        if (retired.removeIf(old -> old == held)) {
+            closeQuietly(held);
+        }
+    }
+
+    /**
+     * Stops handing out the current repository. It is closed now if no view holds it,
+     * otherwise when the last one releases it.
+     */
+    private static synchronized void retire() {
+        if (repository == null) {
+            return;
+        }
+        if (repository instanceof DatabaseManager manager) {
+            DatabaseManager.detachInstance(manager);
+        }
+        if (holders.containsKey(repository)) {
+            retired.add(repository);
+        } else {
+            closeQuietly(repository);
+        }
+        repository = null;
+    }
+
+    private static void closeQuietly(AttendanceRepository old) {
+        try {
+            old.close();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to close attendance repository", e);
+        }
+    }
+
+    /**
+     * Closes the shared repository and any replaced ones still held, e.g. when the application
+     * stops. The next getRepository() builds a new one.
+     */
+    public static synchronized void close() {
+        if (repository instanceof DatabaseManager manager) {
+            DatabaseManager.detachInstance(manager);
+        }
+        if (repository != null) {
+            closeQuietly(repository);
+            repository = null;
+        }
+        for (AttendanceRepository old : retired) {
+            closeQuietly(old);
+        }
+        retired.clear();
+        holders.clear();
+    }
+
+    /**
+     * Replaces the shared repository, e.g. with an InMemoryAttendanceRepository in tests.
+     *
+     * @param newRepository The repository to hand out, or null to recreate it from config
+     */
+    public static synchronized void setRepository(AttendanceRepository newRepository) {
+        repository = newRepository;
+    }
+}
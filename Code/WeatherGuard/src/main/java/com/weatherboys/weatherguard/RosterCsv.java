@@ -0,0 +1,118 @@
+package com.weatherboys.weatherguard;
+
+import org.bson.Document;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RosterCsv parses a class roster file into the class and student documents
+ * stored by the repositories.
+ * CSV Format:
+ * - First 8 rows: Class metadata (ClassName, ClassID, Semester, Year, StartDate, EndDate, ProfessorName, City)
+ * - Blank row
+ * - Header row: StudentName,StudentID
+ * - Student rows: Name,ID
+ */
+public class RosterCsv {
+
+    private final Document classDocument;
+    private final List<Document> studentDocuments;
+
+    private RosterCsv(Document classDocument, List<Document> studentDocuments) {
+        this.classDocument = classDocument;
+        this.studentDocuments = studentDocuments;
+    }
+
+    /**
+     * Parses a roster file.
+     *
+     * @param filePath Path to the roster CSV file
+     * @return The parsed roster
+     * @throws IOException if the file cannot be read
+     * @throws RuntimeException if the metadata rows are missing or malformed
+     */
+    public static RosterCsv parse(String filePath) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            // Parse class metadata (first 8 lines)
+            String className = br.readLine().split(",", 2)[1].trim();
+            String classId = br.readLine().split(",", 2)[1].trim();
+            String semester = br.readLine().split(",", 2)[1].trim();
+            int year = Integer.parseInt(br.readLine().split(",", 2)[1].trim());
+            String startDate = br.readLine().split(",", 2)[1].trim();
+            String endDate = br.readLine().split(",", 2)[1].trim();
+            String professorName = br.readLine().split(",", 2)[1].trim();
+            String city = br.readLine().split(",", 2)[1].trim();
+
+            // Create class document with active flag
+            Document classDoc = new Document("classId", classId)
+                    .append("className", className)
+                    .append("semester", semester)
+                    .append("year", year)
+                    .append("startDate", startDate)
+                    .append("endDate", endDate)
+                    .append("professorName", professorName)
+                    .append("city", city)
+                    .append("active", true);
+
+            // Skip blank line and header
+            br.readLine(); // blank line
+            br.readLine(); // "StudentName,StudentID" header
+
+            // Parse students
+            List<Document> studentDocs = new ArrayList<>();
+            String line;
+            while ((line = br.readLine()) != null && !line.trim().isEmpty()) {
+                String[] parts = line.split(",");
+                if (parts.length >= 2) {
+                    String studentName = parts[0].trim();
+                    String studentId = parts[1].trim();
+
+                    studentDocs.add(new Document("studentId", studentId)
+                            .append("studentName", studentName)
+                            .append("classId", classId));
+                }
+            }
+            return new RosterCsv(classDoc, studentDocs);
+        }
+    }
+
+    public Document getClassDocument() {
+        return classDocument;
+    }
+
+    public String getClassId() {
+        return classDocument.getString("classId");
+    }
+
+    /**
+     * Stores the coordinates of the class's city in the class document,
+     * so weather can be fetched by coordinates without a city lookup.
+     *
+     * @param coordinates {lat, lon}, or null to leave the document unchanged
+     */
+    public void setCoordinates(double[] coordinates) {
+        if (coordinates != null) {
+            classDocument.append("lat", coordinates[0]).append("lon", coordinates[1]);
+        }
+    }
+
+    /**
+     * Stores the OpenWeather ID of the class's city in the class document,
+     * so its weather can be fetched in a group request from the first load.
+     *
+     * @param cityId The city ID, or 0 to leave the document unchanged
+     */
+    public void setCityId(long cityId) {
+        if (cityId > 0) {
+            classDocument.append("cityId", cityId);
+        }
+    }
+
+    public List<Document> getStudentDocuments() {
+        return studentDocuments;
+    }
+}
@@ -0,0 +1,394 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ApiBudget - Token bucket shared by every OpenWeather request
+ *
+ * The free OpenWeather tier allows about 60 calls per minute per key. Each request takes a token;
+ * tokens refill at callsPerMinute up to a burst. Requests that find no token wait in one of three
+ * priority lanes and are started in lane order as tokens come back, so a teacher opening a class is
+ * never stuck behind the prewarmer or background refreshes. A request still waiting at its lane's
+ * deadline is rejected, and its caller falls back to cached data as it does for any failed fetch.
+ * A 429 response pauses the bucket for the server's Retry-After.
+ *
+ * The lane comes from the calling thread (see runWith / callWith); threads that set none are
+ * interactive. Requests start on the thread that releases them (a timer or the requesting thread),
+ * so starting must not block.
+ *
+ * Config keys (config.properties): openWeatherCallsPerMinute, openWeatherBurst.
+ */
+public class ApiBudget {
+
+    private static final Logger logger = Logger.getLogger(ApiBudget.class.getName());
+
+    // Any minute holds at most burst + callsPerMinute calls, which stays within the free tier's 60
+    static final int DEFAULT_CALLS_PER_MINUTE = 50;
+    static final int DEFAULT_BURST = 10;
+
+    // Pause after a 429 that carries no usable Retry-After, and the longest pause honored
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 30_000;
+    static final long MAX_RETRY_AFTER_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * Request lanes, highest priority first, with how long a request may wait for a token.
+     */
+    public enum Priority {
+        /** A view the user is waiting for */
+        INTERACTIVE(15_000),
+        /** Filling caches ahead of use (prewarmer, radar frames) */
+        PREFETCH(2 * 60_000),
+        /** Keeping cached data current (scheduled and stale-while-revalidate refreshes) */
+        BACKGROUND(5 * 60_000);
+
+        private final long deadlineMillis;
+
+        Priority(long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+
+    /**
+     * Runs a task after a delay; a real implementation is a ScheduledExecutorService.
+     */
+    interface Timer {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private static final ThreadLocal<Priority> CURRENT = ThreadLocal.withInitial(() -> Priority.INTERACTIVE);
+
+    private final LongSupplier clock;
+    private final Timer timer;
+
+    // Guarded by this
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+    private long wakeAt;
+    private double capacity;
+    private double tokensPerMilli;
+    private final List<ArrayDeque<Ticket>> lanes = new ArrayList<>();
+
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * A request's place in the budget: started once a token is free, or rejected at its deadline.
+     */
+    final class Ticket {
+        private final Runnable start;
+        private final Consumer<Exception> reject;
+        private final long enqueuedAt;
+        private Priority priority;
+        private boolean waiting = true;
+
+        private Ticket(Priority priority, Runnable start, Consumer<Exception> reject, long enqueuedAt) {
+            this.priority = priority;
+            this.start = start;
+            this.reject = reject;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        private long deadline() {
+            return enqueuedAt + priority.getDeadlineMillis();
+        }
+
+        /**
+         * Moves a waiting request to a higher lane, e.g. when a view joins a prefetch of the same URL.
+         *
+         * @param higher The new lane; ignored unless it outranks the current one
+         */
+        void promote(Priority higher) {
+            synchronized (ApiBudget.this) {
+                if (!waiting || higher.ordinal() >= priority.ordinal()) {
+                    return;
+                }
+                lanes.get(priority.ordinal()).remove(this);
+                priority = higher;
+                lanes.get(higher.ordinal()).add(this);
+            }
+            dispatch();
+        }
+    }
+
+    ApiBudget(int callsPerMinute, int burst, LongSupplier clock, Timer timer) {
+        this.clock = clock;
+        this.timer = timer;
+        for (int i = 0; i < Priority.values().length; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+        this.refilledAt = clock.getAsLong();
+        configure(callsPerMinute, burst);
+        this.tokens = capacity;
+    }
+
+    /**
+     * Changes the budget. Tokens already in the bucket are kept up to the new burst.
+     *
+     * @param callsPerMinute Sustained rate
+     * @param burst Most calls that may start at once after a quiet period
+     */
+    synchronized void configure(int callsPerMinute, int burst) {
+        refill(clock.getAsLong());
+        tokensPerMilli = Math.max(1, callsPerMinute) / 60_000.0;
+        capacity = Math.max(1, burst);
+        tokens = Math.min(tokens, capacity);
+    }
+
+    void applyConfig(ConfigSnapshot config) {
+        configure(config.getInt("openWeatherCallsPerMinute", DEFAULT_CALLS_PER_MINUTE),
+                config.getInt("openWeatherBurst", DEFAULT_BURST));
+        dispatch();
+    }
+
+    // ---- Priority of the calling thread ----
+
+    /**
+     * @return The lane requests from this thread go to
+     */
+    public static Priority currentPriority() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs work with this thread's requests in the given lane.
+     */
+    public static void runWith(Priority priority, Runnable work) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            work.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Computes a value with this thread's requests in the given lane (e.g. inside supplyAsync,
+     * passing on the lane of the thread that submitted the task).
+     */
+    public static <T> T callWith(Priority priority, Supplier<T> work) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    // ---- Admission ----
+
+    /**
+     * Starts a request when the budget allows: at once if a token is free and nothing outranks it,
+     * otherwise when its turn comes.
+     *
+     * @param priority The request's lane
+     * @param start Sends the request; must not block
+     * @param reject Called instead of start if the request is still waiting at its deadline
+     * @return The request's ticket
+     */
+    Ticket acquire(Priority priority, Runnable start, Consumer<Exception> reject) {
+        Ticket ticket = new Ticket(priority, start, reject, clock.getAsLong());
+        synchronized (this) {
+            lanes.get(priority.ordinal()).add(ticket);
+        }
+        dispatch();
+        synchronized (this) {
+            if (ticket.waiting) {
+                delayed.incrementAndGet();
+            }
+        }
+        return ticket;
+    }
+
+    /**
+     * Reports a 429: no request starts until the server's Retry-After has passed.
+     *
+     * @param retryAfter The Retry-After header (seconds or HTTP date), or null
+     */
+    void throttle(String retryAfter) {
+        long pause = retryAfterMillis(retryAfter, System.currentTimeMillis());
+        throttled.incrementAndGet();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            pausedUntil = Math.max(pausedUntil, now + pause);
+            tokens = 0;
+            refilledAt = now;
+        }
+        logger.log(Level.WARNING, "OpenWeather rate limit hit; pausing requests for " + pause + " ms");
+        dispatch();
+    }
+
+    /**
+     * Parses a Retry-After header.
+     *
+     * @param value Delay in seconds or an HTTP date, or null
+     * @param nowEpochMillis Current wall-clock time, for HTTP dates
+     * @return Pause in milliseconds, DEFAULT_RETRY_AFTER_MILLIS if missing or unreadable
+     */
+    static long retryAfterMillis(String value, long nowEpochMillis) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(value.trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            try {
+                millis = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli() - nowEpochMillis;
+            } catch (DateTimeParseException notDate) {
+                return DEFAULT_RETRY_AFTER_MILLIS;
+            }
+        }
+        return Math.max(0, Math.min(millis, MAX_RETRY_AFTER_MILLIS));
+    }
+
+    /**
+     * Starts every waiting request a token allows, highest lane first, rejects the expired ones and
+     * sets a timer for the next token or deadline.
+     */
+    private void dispatch() {
+        List<Ticket> toStart = new ArrayList<>();
+        List<Ticket> toReject = new ArrayList<>();
+        long wakeIn = -1;
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+            refill(now);
+
+            long nextDeadline = Long.MAX_VALUE;
+            for (ArrayDeque<Ticket> lane : lanes) {
+                Iterator<Ticket> waiting = lane.iterator();
+                while (waiting.hasNext()) {
+                    Ticket ticket = waiting.next();
+                    if (ticket.deadline() <= now) {
+                        waiting.remove();
+                        ticket.waiting = false;
+                        toReject.add(ticket);
+                    } else {
+                        nextDeadline = Math.min(nextDeadline, ticket.deadline());
+                    }
+                }
+            }
+
+            if (now >= pausedUntil) {
+                for (ArrayDeque<Ticket> lane : lanes) {
+                    while (tokens >= 1 && !lane.isEmpty()) {
+                        Ticket ticket = lane.poll();
+                        ticket.waiting = false;
+                        tokens -= 1;
+                        toStart.add(ticket);
+                    }
+                }
+            }
+
+            if (hasWaiting()) {
+                long nextToken = Math.max(pausedUntil,
+                        now + (long) Math.ceil(Math.max(0, 1 - tokens) / tokensPerMilli));
+                long next = Math.min(nextToken, nextDeadline);
+                // One pending timer is enough, unless this wake-up is due sooner
+                if (wakeAt == 0 || next < wakeAt) {
+                    wakeAt = next;
+                    wakeIn = Math.max(0, next - now);
+                }
+            }
+        }
+
+        if (wakeIn >= 0) {
+            timer.schedule(this::wake, wakeIn);
+        }
+        for (Ticket ticket : toStart) {
+            granted.incrementAndGet();
+            ticket.start.run();
+        }
+        for (Ticket ticket : toReject) {
+            expired.incrementAndGet();
+            ticket.reject.accept(new RejectedExecutionException("OpenWeather request budget exhausted; "
+                    + ticket.priority + " request waited " + ticket.priority.getDeadlineMillis() + " ms"));
+        }
+    }
+
+    private void wake() {
+        synchronized (this) {
+            wakeAt = 0;
+        }
+        dispatch();
+    }
+
+    // Guarded by this
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMilli);
+            refilledAt = now;
+        }
+    }
+
+    // Guarded by this
+    private boolean hasWaiting() {
+        for (ArrayDeque<Ticket> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---- Metrics ----
+
+    /**
+     * @return Whole tokens available now (0 while paused by a 429)
+     */
+    public synchronized int getRemaining() {
+        long now = clock.getAsLong();
+        refill(now);
+        return now < pausedUntil ? 0 : (int) tokens;
+    }
+
+    /**
+     * @param priority A lane
+     * @return Requests waiting in the lane
+     */
+    public synchronized int getQueued(Priority priority) {
+        return lanes.get(priority.ordinal()).size();
+    }
+
+    /**
+     * @return Milliseconds until requests resume after a 429, 0 if not paused
+     */
+    public synchronized long getPausedMillis() {
+        return Math.max(0, pausedUntil - clock.getAsLong());
+    }
+
+    public long getGranted() { return granted.get(); }
+    public long getDelayed() { return delayed.get(); }
+    public long getExpired() { return expired.get(); }
+    public long getThrottled() { return throttled.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("ApiBudget: %d remaining, queued %d/%d/%d, %d granted (%d delayed), %d expired, %d throttled",
+                getRemaining(), getQueued(Priority.INTERACTIVE), getQueued(Priority.PREFETCH),
+                getQueued(Priority.BACKGROUND), getGranted(), getDelayed(), getExpired(), getThrottled());
+    }
+}
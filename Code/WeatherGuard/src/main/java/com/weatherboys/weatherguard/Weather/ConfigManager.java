@@ -1,12 +1,40 @@
 package com.weatherboys.weatherguard.Weather;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * ConfigManager - Reads and watches config.properties
+ *
+ * The file is parsed once into an immutable ConfigSnapshot held in memory; getConfig()
+ * returns it without touching the disk. startWatching() runs a WatchService on the file's
+ * directory: when the file changes, a new snapshot is swapped in atomically and every
+ * listener receives it, so components can pick up a new API key or database settings
+ * without a restart.
+ *
+ * Editors save in several steps (delete-then-create, or truncate-and-write), so the watcher
+ * waits for the file to stop changing before reading it, and never publishes a read that
+ * looks like a save in progress: a missing file, or one with less than half the keys of the
+ * current snapshot. Listeners keep the last good snapshot meanwhile.
+ */
 public class ConfigManager {
+
+    private static final Logger logger = Logger.getLogger(ConfigManager.class.getName());
 	// Production file management
 	/*
     private static final String OS = System.getProperty("os.name").toLowerCase();
@@ -28,6 +56,188 @@ public class ConfigManager {
 	// Dev file management
 	private static final String CONFIG_FILE_PATH = "config.properties";
 
+    // How long the file's size and modification time must stay the same before the watcher reads it
+    static final long SETTLE_MILLIS = 200;
+
+    private static final AtomicReference<ConfigSnapshot> current = new AtomicReference<>();
+    private static final List<BiConsumer<ConfigSnapshot, ConfigSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private static WatchService watchService;
+
+    /**
+     * Gets the current configuration, reading the file only on first use.
+     * If the file cannot be read, an empty snapshot is returned and the read is retried next time.
+     *
+     * @return The current immutable snapshot
+     */
+    public static ConfigSnapshot getConfig() {
+        ConfigSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            return reload();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Unable to read " + CONFIG_FILE_PATH, e);
+            return ConfigSnapshot.EMPTY;
+        }
+    }
+
+    /**
+     * Re-reads the file, swaps in the new snapshot and notifies listeners if anything changed.
+     *
+     * @return The new snapshot
+     * @throws IOException if the file exists but cannot be read
+     */
+    public static ConfigSnapshot reload() throws IOException {
+        Properties properties = readFile();
+        return publish(new ConfigSnapshot(properties == null ? new Properties() : properties));
+    }
+
+    /**
+     * Swaps in a snapshot and notifies listeners if anything changed.
+     */
+    private static ConfigSnapshot publish(ConfigSnapshot snapshot) {
+        ConfigSnapshot previous = current.getAndSet(snapshot);
+        if (previous != null && !previous.equals(snapshot)) {
+            logger.log(Level.INFO, "Configuration reloaded from " + CONFIG_FILE_PATH);
+            for (BiConsumer<ConfigSnapshot, ConfigSnapshot> listener : listeners) {
+                try {
+                    listener.accept(previous, snapshot);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Config listener failed", e);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Picks the snapshot to publish after the watcher has read the file, refusing a read
+     * that looks like a save in progress.
+     *
+     * @param snapshot The snapshot in use, or null before the first read
+     * @param read The properties read, or null if the file was missing
+     * @return The snapshot to publish; the one in use if the read was refused
+     */
+    static ConfigSnapshot accept(ConfigSnapshot snapshot, Properties read) {
+        if (snapshot == null) {
+            return new ConfigSnapshot(read == null ? new Properties() : read);
+        }
+        if (read == null) {
+            logger.log(Level.WARNING, CONFIG_FILE_PATH + " is missing; keeping the current configuration");
+            return snapshot;
+        }
+        ConfigSnapshot next = new ConfigSnapshot(read);
+        if (next.size() * 2 < snapshot.size()) {
+            logger.log(Level.WARNING, CONFIG_FILE_PATH + " has " + next.size() + " of " + snapshot.size()
+                    + " keys; keeping the current configuration until it is saved in full");
+            return snapshot;
+        }
+        return next;
+    }
+
+    /**
+     * Registers a callback for configuration changes. It runs on the watcher thread;
+     * use ConfigSnapshot.differs to react only to the keys a component cares about.
+     *
+     * @param listener Receives the previous and the new snapshot
+     */
+    public static void addListener(BiConsumer<ConfigSnapshot, ConfigSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(BiConsumer<ConfigSnapshot, ConfigSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching config.properties for changes on a daemon thread. Calling it again does nothing.
+     */
+    public static synchronized void startWatching() {
+        if (watchService != null) {
+            return;
+        }
+        Path configFile = Paths.get(CONFIG_FILE_PATH).toAbsolutePath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            configFile.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to watch " + configFile + "; changes need a restart", e);
+            watchService = null;
+            return;
+        }
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watch(service, configFile), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops the file watcher.
+     */
+    public static synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error closing config watcher", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private static void watch(WatchService service, Path configFile) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (configFile.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    awaitSettled(configFile);
+                    try {
+                        publish(accept(current.get(), readFile()));
+                    } catch (IOException e) {
+                        // Editors often save in several steps; the next event will retry
+                        logger.log(Level.WARNING, "Unable to reload " + configFile, e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stopped
+        }
+    }
+
+    /**
+     * Waits until the file's size and modification time have stayed the same for SETTLE_MILLIS.
+     * A missing file counts as settled once it stays missing.
+     */
+    private static void awaitSettled(Path file) throws InterruptedException {
+        String last = stamp(file);
+        while (true) {
+            Thread.sleep(SETTLE_MILLIS);
+            String now = stamp(file);
+            if (now.equals(last)) {
+                return;
+            }
+            last = now;
+        }
+    }
+
+    private static String stamp(Path file) {
+        try {
+            return Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return "missing";
+        }
+    }
+
     public static void saveConfig(Properties properties) throws IOException {
         Path configFile = Paths.get(CONFIG_FILE_PATH);
 
@@ -38,16 +248,36 @@ public class ConfigManager {
         try (var outputStream = Files.newOutputStream(configFile)) {
             properties.store(outputStream, null);
         }
+        reload();
     }
 
+    /**
+     * Gets the configuration as a mutable Properties copy of the current snapshot.
+     * Prefer getConfig() for new code.
+     *
+     * @return A copy of the current configuration
+     * @throws IOException if the file has not been read yet and cannot be read now
+     */
     public static Properties loadConfig() throws IOException {
+        ConfigSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = reload();
+        }
+        return snapshot.toProperties();
+    }
+
+    /**
+     * @return The file's properties, or null if it does not exist
+     */
+    private static Properties readFile() throws IOException {
         Path configFile = Paths.get(CONFIG_FILE_PATH);
+        if (!Files.exists(configFile)) {
+            return null;
+        }
 
         Properties properties = new Properties();
-        if (Files.exists(configFile)) {
-            try (var inputStream = Files.newInputStream(configFile)) {
-                properties.load(inputStream);
-            }
+        try (var inputStream = Files.newInputStream(configFile)) {
+            properties.load(inputStream);
         }
         return properties;
     }
@@ -0,0 +1,125 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ConfigSnapshot - Immutable view of config.properties at one point in time
+ *
+ * Obtained from ConfigManager.getConfig(). A snapshot never changes; when the file is
+ * edited, ConfigManager swaps in a new snapshot and notifies its listeners.
+ * Typed accessors fall back to the given default when a key is missing or malformed.
+ */
+public final class ConfigSnapshot {
+
+    private static final Logger logger = Logger.getLogger(ConfigSnapshot.class.getName());
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(new Properties());
+
+    private final Map<String, String> values;
+
+    ConfigSnapshot(Properties properties) {
+        Map<String, String> copy = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            copy.put(key, properties.getProperty(key));
+        }
+        this.values = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @param key Property name
+     * @return The trimmed value, or null if missing or blank
+     */
+    public String get(String key) {
+        String value = values.get(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid " + key + ": " + value + ", using default");
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid " + key + ": " + value + ", using default");
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    /**
+     * Whether this snapshot and another hold different values for any of the given keys.
+     *
+     * @param other The snapshot to compare with
+     * @param keys Property names to compare
+     * @return true if at least one key differs
+     */
+    public boolean differs(ConfigSnapshot other, String... keys) {
+        for (String key : keys) {
+            if (!Objects.equals(values.get(key), other.values.get(key))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of keys
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @return A mutable copy of the values, for code that still takes Properties
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.putAll(values);
+        return properties;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        return values.equals(((ConfigSnapshot) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+}
@@ -1,15 +1,10 @@
 package com.weatherboys.weatherguard.Weather;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Properties;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,7 +34,7 @@ public class Forecast {
         this.days = days;
     }
 
-    // Static factory method to fetch forecast for a specific location
+    // Static factory method to fetch forecast for a specific location, served from the WeatherCache when fresh
     public static Forecast fetchForecastForLocation(double lat, double lon) {
         // Validate latitude and longitude values
         if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
@@ -47,13 +42,12 @@ public class Forecast {
             return new Forecast(); // Return an empty Forecast object
         }
 
-        String apiKey = null;
-        try {
-            Properties config = ConfigManager.loadConfig();
-            apiKey = config.getProperty("apiKey");
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Unable to load API key from config", e);
-        }
+        return WeatherCache.getInstance().getForecast(lat, lon, () -> requestForecastForLocation(lat, lon));
+    }
+
+    // Request the forecast for a location from the API, bypassing the cache
+    static Forecast requestForecastForLocation(double lat, double lon) {
+        String apiKey = ConfigManager.getConfig().get("apiKey");
 
         if (apiKey == null || apiKey.trim().isEmpty()) {
             logger.log(Level.SEVERE, "API key is missing or empty in config");
@@ -139,17 +133,9 @@ public class Forecast {
         return kelvin;
     }
 
-    // Helper method to invoke a GET request
+    // Helper method to invoke a GET request through the shared HttpGateway
     public static HttpResponse<String> invokeGET(String requestURL) {
-        HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(requestURL)).GET().build();
-        HttpResponse<String> response = null;
-        try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            logger.log(Level.SEVERE, "ERROR:Forecast:HttpResponse", e);
-        }
-        return response;
+        return HttpGateway.getInstance().getString(requestURL);
     }
 
     // Getters and Setters
@@ -0,0 +1,187 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GeocodeCache - Persistent city to coordinates lookup
+ *
+ * Forecast and map requests are keyed by coordinates, which used to be known only after
+ * the current-weather call for the city returned. Coordinates are remembered here the first
+ * time a city resolves (or when a roster is uploaded) and saved to a local properties file,
+ * so later refreshes, even right after a restart, can issue every request at once.
+ * The OpenWeather city ID is kept too once a weather response has reported it (the roster
+ * upload makes sure it has, and stores it with the class), so WeatherBatch can fetch many cities
+ * with one group request.
+ *
+ * File: geocode_cache.properties in the working directory (config key geocodeCacheFile),
+ * one line per city: {@code city=lat,lon} or {@code city=lat,lon,id}.
+ */
+public class GeocodeCache {
+
+    private static final Logger logger = Logger.getLogger(GeocodeCache.class.getName());
+
+    static final String DEFAULT_FILE = "geocode_cache.properties";
+
+    private static GeocodeCache instance;
+
+    private final Path file;
+    private final Properties entries = new Properties();
+
+    GeocodeCache(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (var inputStream = Files.newInputStream(file)) {
+                entries.load(inputStream);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to read geocode cache: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared cache, loading it from disk on first use.
+     *
+     * @return The process-wide GeocodeCache
+     */
+    public static synchronized GeocodeCache getInstance() {
+        if (instance == null) {
+            instance = new GeocodeCache(Paths.get(ConfigManager.getConfig().get("geocodeCacheFile", DEFAULT_FILE)));
+        }
+        return instance;
+    }
+
+    private static String key(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up the coordinates of a city without any network call.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @return {lat, lon}, or null if the city has not been resolved yet
+     */
+    public double[] lookup(String city) {
+        if (city == null) {
+            return null;
+        }
+        String value = entries.getProperty(key(city));
+        if (value == null) {
+            return null;
+        }
+        try {
+            String[] parts = value.split(",");
+            return new double[] {Double.parseDouble(parts[0]), Double.parseDouble(parts[1])};
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Ignoring malformed geocode entry for " + city + ": " + value);
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the OpenWeather city ID of a city without any network call.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @return The city ID, or 0 if not known yet
+     */
+    public long lookupId(String city) {
+        if (city == null) {
+            return 0;
+        }
+        String value = entries.getProperty(key(city));
+        String[] parts = value == null ? new String[0] : value.split(",");
+        if (parts.length < 3) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(parts[2].trim());
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Ignoring malformed city ID for " + city + ": " + value);
+            return 0;
+        }
+    }
+
+    /**
+     * Looks up the coordinates of a city, fetching its current weather to resolve them on a miss.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @return {lat, lon}, or null if the city could not be resolved
+     */
+    public double[] resolve(String city) {
+        double[] coordinates = lookup(city);
+        if (coordinates == null && city != null && !city.trim().isEmpty()) {
+            // A successful fetch stores the coordinates through put
+            Weather.fetchWeatherForCity(city);
+            coordinates = lookup(city);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Looks up the OpenWeather city ID of a city, fetching its current weather to learn it on a miss.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @return The city ID, or 0 if the city could not be resolved
+     */
+    public long resolveId(String city) {
+        long id = lookupId(city);
+        if (id == 0 && city != null && !city.trim().isEmpty()) {
+            // Bypasses a cached weather entry, which carries no ID; a successful fetch stores it through put
+            Weather.refreshWeatherForCity(city);
+            id = lookupId(city);
+        }
+        return id;
+    }
+
+    /**
+     * Records the coordinates of a city, saving the file if they changed.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @param lat Latitude
+     * @param lon Longitude
+     */
+    public void put(String city, double lat, double lon) {
+        put(city, lat, lon, 0);
+    }
+
+    /**
+     * Records the coordinates and OpenWeather ID of a city, saving the file if they changed.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @param lat Latitude
+     * @param lon Longitude
+     * @param id OpenWeather city ID, or 0 to keep the one already known
+     */
+    public synchronized void put(String city, double lat, double lon, long id) {
+        if (city == null || city.trim().isEmpty()) {
+            return;
+        }
+        long knownId = id > 0 ? id : lookupId(city);
+        String value = knownId > 0 ? lat + "," + lon + "," + knownId : lat + "," + lon;
+        if (value.equals(entries.setProperty(key(city), value))) {
+            return;
+        }
+        save();
+    }
+
+    private void save() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, "geocode", ".tmp");
+            try (var outputStream = Files.newOutputStream(temp)) {
+                entries.store(outputStream, "WeatherGuard city coordinates");
+            }
+            // Replace in one step so a crash never leaves a half-written file
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to save geocode cache: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HttpGateway - Shared HTTP client for the Weather package
+ *
+ * All OpenWeather and OpenStreetMap requests go through one pooled, HTTP/2-capable
+ * HttpClient so connections (and TLS sessions) are reused instead of being set up per request.
+ * - Identical in-flight GETs (same URL and body type) are coalesced into one request
+ * - Each host has a concurrency limit; requests over it wait in a FIFO queue
+ * - Per-host request, failure, latency and byte counters are kept for diagnostics
+ * - OpenWeather requests also draw on the shared ApiBudget, in the calling thread's priority lane,
+ *   and a 429 pauses them for the server's Retry-After
+ *
+ * Config keys (config.properties): httpConnectTimeoutMs, httpRequestTimeoutMs, httpMaxConcurrentPerHost,
+ * and the ApiBudget keys.
+ */
+public class HttpGateway {
+
+    private static final Logger logger = Logger.getLogger(HttpGateway.class.getName());
+
+    static final int DEFAULT_CONNECT_TIMEOUT_MS = 5_000;
+    static final int DEFAULT_REQUEST_TIMEOUT_MS = 10_000;
+    static final int DEFAULT_MAX_CONCURRENT_PER_HOST = 4;
+
+    // OpenStreetMap's tile policy requires an identifying User-Agent
+    private static final String USER_AGENT = "WeatherGuard/1.0 (Educational Project)";
+
+    private static HttpGateway instance;
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final int maxConcurrentPerHost;
+    private final ApiBudget budget;
+
+    private final ConcurrentMap<String, CompletableFuture<? extends HttpResponse<?>>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    // Coalescing keys of budgeted requests still waiting for a token
+    private final ConcurrentMap<String, ApiBudget.Ticket> waitingTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Concurrency gate and counters for one host.
+     */
+    public static class Host {
+        private final String name;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int running;
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Host(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long bodyBytes, boolean failed) {
+            requests.incrementAndGet();
+            if (failed) {
+                failures.incrementAndGet();
+            }
+            bytes.addAndGet(bodyBytes);
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getRequests() { return requests.get(); }
+        public long getFailures() { return failures.get(); }
+        public long getBytes() { return bytes.get(); }
+
+        public double getMeanLatencyMillis() {
+            long count = requests.get();
+            return count == 0 ? 0 : totalNanos.get() / 1_000_000.0 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d failed, %d bytes, mean %.1f ms, max %.1f ms",
+                    name, getRequests(), getFailures(), getBytes(), getMeanLatencyMillis(), getMaxLatencyMillis());
+        }
+    }
+
+    HttpGateway(int connectTimeoutMs, int requestTimeoutMs, int maxConcurrentPerHost) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "openweather-budget");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.budget = new ApiBudget(ApiBudget.DEFAULT_CALLS_PER_MINUTE, ApiBudget.DEFAULT_BURST,
+                () -> System.nanoTime() / 1_000_000,
+                (task, delayMillis) -> timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Gets the shared gateway, reading timeouts and limits from config on first use.
+     *
+     * @return The process-wide HttpGateway
+     */
+    public static synchronized HttpGateway getInstance() {
+        if (instance == null) {
+            ConfigSnapshot config = ConfigManager.getConfig();
+            instance = new HttpGateway(
+                    positive(config.getInt("httpConnectTimeoutMs", DEFAULT_CONNECT_TIMEOUT_MS), DEFAULT_CONNECT_TIMEOUT_MS),
+                    positive(config.getInt("httpRequestTimeoutMs", DEFAULT_REQUEST_TIMEOUT_MS), DEFAULT_REQUEST_TIMEOUT_MS),
+                    positive(config.getInt("httpMaxConcurrentPerHost", DEFAULT_MAX_CONCURRENT_PER_HOST), DEFAULT_MAX_CONCURRENT_PER_HOST));
+            ApiBudget budget = instance.budget;
+            budget.applyConfig(config);
+            ConfigManager.addListener((previous, current) -> budget.applyConfig(current));
+        }
+        return instance;
+    }
+
+    private static int positive(int value, int defaultValue) {
+        return value > 0 ? value : defaultValue;
+    }
+
+    /**
+     * Sends a GET and returns the body as a string.
+     *
+     * @param url Request URL
+     * @return Future completing with the response, or exceptionally on I/O errors and timeouts
+     */
+    public CompletableFuture<HttpResponse<String>> getStringAsync(String url) {
+        return send("string", url, Map.of(), HttpResponse.BodyHandlers.ofString(),
+                body -> body == null ? 0 : body.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * Sends a GET and returns the body as bytes (e.g. map tiles).
+     *
+     * @param url Request URL
+     * @return Future completing with the response, or exceptionally on I/O errors and timeouts
+     */
+    public CompletableFuture<HttpResponse<byte[]>> getBytesAsync(String url) {
+        return getBytesAsync(url, Map.of());
+    }
+
+    /**
+     * Sends a GET with extra request headers (e.g. If-None-Match for revalidation) and returns the body as bytes.
+     *
+     * @param url Request URL
+     * @param headers Extra request headers
+     * @return Future completing with the response, or exceptionally on I/O errors and timeouts
+     */
+    public CompletableFuture<HttpResponse<byte[]>> getBytesAsync(String url, Map<String, String> headers) {
+        return send("bytes", url, headers, HttpResponse.BodyHandlers.ofByteArray(), body -> body == null ? 0 : body.length);
+    }
+
+    /**
+     * Blocking GET returning the body as a string.
+     *
+     * @param url Request URL
+     * @return The response (of any status), or null if the request failed
+     */
+    public HttpResponse<String> getString(String url) {
+        try {
+            return getStringAsync(url).join();
+        } catch (CompletionException e) {
+            logger.log(Level.SEVERE, "HTTP request failed: " + redact(url), e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Blocking GET returning the body of a 200 response as bytes.
+     *
+     * @param url Request URL
+     * @return The body, or null if the request failed or returned another status
+     */
+    public byte[] getBytes(String url) {
+        try {
+            HttpResponse<byte[]> response = getBytesAsync(url).join();
+            if (response.statusCode() != 200) {
+                logger.log(Level.WARNING, "HTTP " + response.statusCode() + " from " + redact(url));
+                return null;
+            }
+            return response.body();
+        } catch (CompletionException e) {
+            logger.log(Level.SEVERE, "HTTP request failed: " + redact(url), e.getCause());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<HttpResponse<T>> send(String bodyType, String url, Map<String, String> headers,
+                                                        HttpResponse.BodyHandler<T> handler, ToLongFunction<T> bodySize) {
+        // The body type and headers are part of the key so only truly identical requests share a future
+        String key = headers.isEmpty() ? bodyType + " " + url : bodyType + " " + url + " " + new TreeMap<>(headers);
+        ApiBudget.Priority priority = ApiBudget.currentPriority();
+        CompletableFuture<HttpResponse<T>> created = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<T>> existing =
+                (CompletableFuture<HttpResponse<T>>) inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            // A view joining a queued prefetch of the same URL should not wait in the prefetch lane
+            ApiBudget.Ticket ticket = waitingTickets.get(key);
+            if (ticket != null) {
+                ticket.promote(priority);
+            }
+            return existing;
+        }
+        created.whenComplete((response, error) -> inFlight.remove(key, created));
+
+        HttpRequest request;
+        Host host;
+        boolean budgeted;
+        try {
+            URI uri = URI.create(url);
+            host = hosts.computeIfAbsent(uri.getHost(), Host::new);
+            budgeted = isBudgeted(uri.getHost());
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(requestTimeout)
+                    .header("User-Agent", USER_AGENT)
+                    .GET();
+            headers.forEach(builder::header);
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            created.completeExceptionally(e);
+            return created;
+        }
+
+        Runnable start = () -> acquire(host, () -> {
+            long sendStart = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> sent;
+            try {
+                sent = client.sendAsync(request, handler);
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((response, error) -> {
+                release(host);
+                long nanos = System.nanoTime() - sendStart;
+                if (error != null) {
+                    host.record(nanos, 0, true);
+                    created.completeExceptionally(error);
+                } else {
+                    if (budgeted && response.statusCode() == 429) {
+                        budget.throttle(response.headers().firstValue("Retry-After").orElse(null));
+                    }
+                    host.record(nanos, bodySize.applyAsLong(response.body()), response.statusCode() >= 400);
+                    created.complete(response);
+                }
+            });
+        });
+
+        if (!budgeted) {
+            start.run();
+            return created;
+        }
+        ApiBudget.Ticket ticket = budget.acquire(priority, start, created::completeExceptionally);
+        waitingTickets.put(key, ticket);
+        // Dropped once the request completes (at once if it already has)
+        created.whenComplete((response, error) -> waitingTickets.remove(key, ticket));
+        return created;
+    }
+
+    // Every OpenWeather host (API, tiles, Weather Maps 2.0) counts against the same key
+    private static boolean isBudgeted(String host) {
+        return host != null && (host.equals("openweathermap.org") || host.endsWith(".openweathermap.org"));
+    }
+
+    private void acquire(Host host, Runnable start) {
+        synchronized (host) {
+            if (host.running >= maxConcurrentPerHost) {
+                host.waiting.add(start);
+                return;
+            }
+            host.running++;
+        }
+        start.run();
+    }
+
+    private void release(Host host) {
+        Runnable next;
+        synchronized (host) {
+            next = host.waiting.poll();
+            if (next == null) {
+                host.running--;
+            }
+        }
+        // The finished request's slot passes straight to the next waiting one
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    /**
+     * Gets the per-host counters, keyed by host name.
+     *
+     * @return Snapshot of the hosts seen so far
+     */
+    public Map<String, Host> getHostStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(hosts));
+    }
+
+    /**
+     * @return The OpenWeather request budget, for its remaining tokens and queue lengths
+     */
+    public ApiBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Strips the query string (which carries the API key) so a URL can be logged.
+     */
+    static String redact(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("HttpGateway:\n  ").append(budget);
+        for (Host host : getHostStats().values()) {
+            result.append("\n  ").append(host);
+        }
+        return result.toString();
+    }
+}
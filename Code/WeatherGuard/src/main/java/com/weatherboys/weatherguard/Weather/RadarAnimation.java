@@ -0,0 +1,209 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RadarAnimation - Looping timeline of recent precipitation frames over a StaticMap
+ *
+ * A background prefetcher fetches each frame's overlay tiles (through the TileCache) and draws
+ * them over the map into a fixed ring of premultiplied ARGB frame buffers, staying ahead of playback
+ * by the ring size less the frame on screen, which is never drawn over.
+ * The player polls for the next frame without ever waiting: if it is not drawn yet, the player
+ * keeps showing the current one. Memory is the ring, whatever the timeline length.
+ *
+ * Usage from a UI timer: poll(); show the frame; advance(). close() when done.
+ *
+ * Frames come from a time-indexed tile server (by default OpenWeather Weather Maps 2.0, which takes
+ * a date parameter). Config keys (config.properties): radarTileUrl, radarLayer, radarFrames,
+ * radarStepMinutes, radarFrameMillis, radarBufferFrames.
+ */
+public class RadarAnimation implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(RadarAnimation.class.getName());
+
+    static final String DEFAULT_TILE_URL =
+            "http://maps.openweathermap.org/maps/2.0/weather/{layer}/{z}/{x}/{y}?date={date}&appid={apiKey}";
+    static final String DEFAULT_LAYER = "PR0";
+    static final int DEFAULT_FRAMES = 8;
+    static final int DEFAULT_STEP_MINUTES = 60;
+    static final int DEFAULT_FRAME_MILLIS = 500;
+    static final int DEFAULT_BUFFER_FRAMES = 4;
+
+    private final StaticMap map;
+    private final String urlTemplate;
+    private final String layer;
+    private final long[] frameTimes;
+    private final int frameMillis;
+
+    // Frame sequence number n (counting across loops) is drawn into slot n % ring.length
+    private final BufferedImage[] ring;
+    private final long[] slotSequence;
+    private final ExecutorService prefetcher;
+
+    // Guarded by this
+    private long playhead;
+    private long nextToDraw;
+    private boolean closed;
+
+    /**
+     * A drawn frame. Its buffer stays intact while the following frame is shown, so it can be
+     * displayed without copying and swapped out at the next tick.
+     *
+     * @param image The map with this frame's radar overlay; do not keep it past the next advance()
+     * @param time Frame time in Unix seconds
+     */
+    public record Frame(BufferedImage image, long time) {
+    }
+
+    RadarAnimation(StaticMap map, String urlTemplate, String layer, long[] frameTimes, int frameMillis, int bufferFrames) {
+        this.map = map;
+        this.urlTemplate = urlTemplate;
+        this.layer = layer;
+        this.frameTimes = frameTimes;
+        this.frameMillis = frameMillis;
+        this.ring = new BufferedImage[Math.max(3, Math.min(bufferFrames, frameTimes.length + 1))];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new BufferedImage(map.getWidth(), map.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        this.slotSequence = new long[ring.length];
+        Arrays.fill(slotSequence, -1);
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "radar-prefetch");
+            thread.setDaemon(true);
+            // Decoding must not compete with the FX thread on a slow classroom PC
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates an animation of the last radarFrames frames over a map, oldest first.
+     *
+     * @param map The map to animate over (e.g. WeatherService.getWeatherMap())
+     * @return A new animation, not yet started, or null if the map has no tiles to draw over
+     */
+    public static RadarAnimation forMap(StaticMap map) {
+        if (map == null || map.isEmpty() || !map.hasTileSource()) {
+            return null;
+        }
+        ConfigSnapshot config = ConfigManager.getConfig();
+        int frames = Math.max(2, config.getInt("radarFrames", DEFAULT_FRAMES));
+        long step = Math.max(1, config.getInt("radarStepMinutes", DEFAULT_STEP_MINUTES)) * 60L;
+
+        // Align to the step so every client asks for the same (cacheable) frame times
+        long latest = System.currentTimeMillis() / 1000 / step * step;
+        long[] frameTimes = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            frameTimes[i] = latest - (frames - 1 - i) * step;
+        }
+        return new RadarAnimation(map,
+                config.get("radarTileUrl", DEFAULT_TILE_URL),
+                config.get("radarLayer", DEFAULT_LAYER),
+                frameTimes,
+                Math.max(50, config.getInt("radarFrameMillis", DEFAULT_FRAME_MILLIS)),
+                config.getInt("radarBufferFrames", DEFAULT_BUFFER_FRAMES));
+    }
+
+    /**
+     * Starts drawing frames in the background.
+     */
+    public void start() {
+        prefetcher.execute(this::prefetchLoop);
+    }
+
+    private void prefetchLoop() {
+        while (true) {
+            long sequence;
+            synchronized (this) {
+                // Fill the ring ahead of playback, keeping the slot of the frame on screen (playhead - 1)
+                while (!closed && nextToDraw >= playhead - 1 + ring.length) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                sequence = nextToDraw;
+            }
+
+            int slot = (int) (sequence % ring.length);
+            long time = frameTimes[(int) (sequence % frameTimes.length)];
+            // Past frames never change, so they are cached like base tiles
+            BufferedImage[] overlay = ApiBudget.callWith(ApiBudget.Priority.PREFETCH,
+                    () -> map.fetchOverlay("radar", layer + "@" + time, true, (x, y) -> tileUrl(x, y, time))).join();
+            // The slot's previous frame was shown and has already been replaced on screen
+            map.drawFrame(ring[slot], overlay);
+
+            synchronized (this) {
+                slotSequence[slot] = sequence;
+                nextToDraw = sequence + 1;
+            }
+        }
+    }
+
+    private String tileUrl(int x, int y, long time) {
+        return urlTemplate
+                .replace("{layer}", layer)
+                .replace("{z}", Integer.toString(map.getOverlayZoom()))
+                .replace("{x}", Integer.toString(x))
+                .replace("{y}", Integer.toString(y))
+                .replace("{date}", Long.toString(time))
+                .replace("{apiKey}", map.getApiKey());
+    }
+
+    /**
+     * Gets the frame to show next, without waiting.
+     *
+     * @return The frame, or null if the prefetcher has not drawn it yet
+     */
+    public synchronized Frame poll() {
+        int slot = (int) (playhead % ring.length);
+        if (closed || slotSequence[slot] != playhead) {
+            return null;
+        }
+        return new Frame(ring[slot], frameTimes[(int) (playhead % frameTimes.length)]);
+    }
+
+    /**
+     * Moves to the next frame (looping at the end) once the polled frame is on screen,
+     * releasing the buffer of the frame before it.
+     */
+    public synchronized void advance() {
+        playhead++;
+        notifyAll();
+    }
+
+    /**
+     * @return Delay between frames for the player's timer
+     */
+    public int getFrameMillis() {
+        return frameMillis;
+    }
+
+    public int getFrameCount() {
+        return frameTimes.length;
+    }
+
+    /**
+     * Stops the prefetcher. Polls return null afterwards.
+     */
+    @Override
+    public void close() {
+        long shown;
+        synchronized (this) {
+            closed = true;
+            shown = playhead;
+            notifyAll();
+        }
+        prefetcher.shutdownNow();
+        logger.log(Level.FINE, "Radar animation stopped after " + shown + " frames");
+    }
+}
@@ -1,103 +1,465 @@
 package com.weatherboys.weatherguard.Weather;
 
-import javax.imageio.ImageIO;
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.URI;
-import java.net.URLConnection;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * StaticMap - Tile mosaic centered on a location, with weather overlays
+ *
+ * The map is a window of columns x rows tiles centered on the coordinates at a configurable zoom,
+ * so the city is always in the middle rather than wherever it falls inside one tile.
+ * The base tiles are fetched up front; each weather overlay is fetched only the first time a
+ * view asks for it. Every tile of a layer is requested in parallel through the TileCache.
+ * Views (see withLayers) share the loaded tiles, so switching layers only re-blends images in memory.
+ *
+ * Overlay tiles count against the OpenWeather budget (see ApiBudget), so they are fetched
+ * mapOverlayZoomOut levels further out than the base map and scaled up; the weather fields are far
+ * coarser than the street map anyway. A window not aligned to the tile grid straddles one more
+ * tile each way, so with the defaults (2 x 2 tiles at zoom 7, overlays at zoom 6) a map costs at most
+ * 9 OpenStreetMap tiles and 4 OpenWeather tiles per weather layer: 12 OpenWeather calls for the three
+ * default layers, and the same 4 per radar frame. A 3 x 3 window at the same zoom would take 16 per layer.
+ *
+ * Blending draws into a pair of premultiplied ARGB buffers reused for the same location across
+ * refreshes; the UI can show the buffers directly without copying. The UI reports the buffer it
+ * shows (markShown) and blends only ever draw into the other one, however many finish before the
+ * UI gets to show them. Blends take turns on a lock of their own; the FX thread only ever waits
+ * for the pointer swap that hands a buffer to a blend, never for the drawing. At most MAX_CANVASES pairs are kept, so map memory stays bounded
+ * however often the map refreshes.
+ *
+ * Config keys (config.properties): mapZoom, mapTilesWide, mapTilesHigh, mapOverlayZoomOut.
+ */
 public class StaticMap {
 
     private static final Logger logger = Logger.getLogger(StaticMap.class.getName());
-    private BufferedImage mapImage;
+
+    // Drawn bottom to top; for extreme weather monitoring: temperature, precipitation, clouds
+    public static final List<String> DEFAULT_LAYERS = List.of("temp_new", "precipitation_new", "clouds_new");
+
+    static final int TILE_SIZE = 256;
+    static final int DEFAULT_ZOOM = 7;
+    static final int DEFAULT_TILES_WIDE = 2;
+    static final int DEFAULT_TILES_HIGH = 2;
+    static final int MAX_TILES_PER_SIDE = 5;
+    static final int DEFAULT_OVERLAY_ZOOM_OUT = 1;
+    static final int MAX_OVERLAY_ZOOM_OUT = 2;
+    static final int MAX_CANVASES = 4;
+
+    // Shown where a base tile is missing (e.g. beyond the poles)
+    private static final Color BACKGROUND = new Color(0xAAD3DF);
+
+    // Canvases by location and size, least recently used first; guarded by the map itself
+    private static final LinkedHashMap<String, Canvas> canvases = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Mosaic mosaic;
+    private final List<String> layers;
     private double lat;
     private double lon;
 
+    // The tiles of one zoom level covering a map window
+    private static class Grid {
+        final int zoom;
+        // Map pixels per tile pixel: 1 at the map's zoom, 2 one level out
+        final int scale;
+        final int firstX;
+        final int firstY;
+        final int columns;
+        final int rows;
+
+        /**
+         * @param zoom Zoom level of the tiles, at most the map's
+         * @param mapZoom Zoom level of the map
+         * @param left Left edge of the window in world pixels at mapZoom
+         * @param top Top edge of the window in world pixels at mapZoom
+         */
+        Grid(int zoom, int mapZoom, int left, int top, int width, int height) {
+            this.zoom = zoom;
+            this.scale = 1 << (mapZoom - zoom);
+            int tilePixels = TILE_SIZE * scale;
+            this.firstX = Math.floorDiv(left, tilePixels);
+            this.firstY = Math.floorDiv(top, tilePixels);
+            this.columns = width == 0 ? 0 : Math.floorDiv(left + width - 1, tilePixels) - firstX + 1;
+            this.rows = height == 0 ? 0 : Math.floorDiv(top + height - 1, tilePixels) - firstY + 1;
+        }
+    }
+
+    // The tiles covering one map window, shared by every layer view of it
+    private static class Mosaic {
+        // Top-left corner of the window in world pixels at the base zoom
+        final int left;
+        final int top;
+        final Grid baseGrid;
+        final Grid overlayGrid;
+        final String apiKey;
+        final BufferedImage[] base;
+        final ConcurrentMap<String, CompletableFuture<BufferedImage[]>> overlays = new ConcurrentHashMap<>();
+        final Canvas canvas;
+
+        Mosaic(int left, int top, Grid baseGrid, Grid overlayGrid, String apiKey, BufferedImage[] base, Canvas canvas) {
+            this.left = left;
+            this.top = top;
+            this.baseGrid = baseGrid;
+            this.overlayGrid = overlayGrid;
+            this.apiKey = apiKey;
+            this.base = base;
+            this.canvas = canvas;
+        }
+    }
+
+    // Two reusable pixel buffers, the one on screen and what was last drawn
+    private static class Canvas {
+        final BufferedImage[] images;
+        // Held by one blend at a time, for its whole drawing; never taken by the FX thread
+        final Object drawLock = new Object();
+
+        // Guarded by the canvas itself, which is held only to swap these two pointers.
+        // shown is never drawn into (null until the UI shows one of the buffers); drawing is the
+        // buffer a blend is drawing into right now, or null
+        BufferedImage shown;
+        BufferedImage drawing;
+
+        // Written under drawLock; drawn is also read without it by front()
+        volatile BufferedImage drawn;
+        Mosaic drawnMosaic;
+        List<String> drawnLayers;
+
+        Canvas(BufferedImage first, BufferedImage second) {
+            this.images = new BufferedImage[] {first, second};
+        }
+
+        BufferedImage front() {
+            return drawn != null ? drawn : images[0];
+        }
+    }
+
     public StaticMap() {
+        this(null, DEFAULT_LAYERS, 0, 0);
     }
 
     public StaticMap(BufferedImage mapImage, double lat, double lon) {
-        this.mapImage = mapImage;
+        // A ready-made image without tile sources; any layer selection shows just the image
+        this(new Mosaic(0, 0, new Grid(0, 0, 0, 0, 0, 0), new Grid(0, 0, 0, 0, 0, 0), null, new BufferedImage[0],
+                new Canvas(mapImage, mapImage)), List.of(), lat, lon);
+    }
+
+    private StaticMap(Mosaic mosaic, List<String> layers, double lat, double lon) {
+        this.mosaic = mosaic;
+        this.layers = List.copyOf(layers);
         this.lat = lat;
         this.lon = lon;
     }
 
-    // Fetch map for a city location with multiple weather layers
+    // Fetch map for a city location, served from the WeatherCache when fresh
     public static StaticMap fetchMapForLocation(double lat, double lon) {
-        String apiKey = null;
-        try {
-            Properties config = ConfigManager.loadConfig();
-            apiKey = config.getProperty("apiKey");
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Unable to load API key from config", e);
-        }
+        return WeatherCache.getInstance().getMap(lat, lon, () -> requestMapForLocation(lat, lon));
+    }
+
+    // Request the base tiles for a location, bypassing the cache; overlays load on first use
+    static StaticMap requestMapForLocation(double lat, double lon) {
+        ConfigSnapshot config = ConfigManager.getConfig();
+        String apiKey = config.get("apiKey");
 
         if (apiKey == null || apiKey.trim().isEmpty()) {
             logger.log(Level.SEVERE, "API key is missing or empty in config");
             return new StaticMap();
         }
 
-        // Calculate tile coordinates (zoom 10 = city level view)
-        int zoom = 7;
-        int x = (int) Math.floor((lon + 180.0) / 360.0 * (1 << zoom));
-        int y = (int) Math.floor((1.0 - Math.log(Math.tan(Math.toRadians(lat)) +
-                1.0 / Math.cos(Math.toRadians(lat))) / Math.PI) / 2.0 * (1 << zoom));
-
-        try {
-            // 1. Fetch base map from OpenStreetMap (with proper User-Agent)
-            String osmUrl = String.format(
-                    "https://tile.openstreetmap.org/%d/%d/%d.png",
-                    zoom, x, y
-            );
-            URLConnection osmConnection = URI.create(osmUrl).toURL().openConnection();
-            osmConnection.setRequestProperty("User-Agent", "WeatherGuard/1.0 (Educational Project)");
-            BufferedImage baseMap = ImageIO.read(osmConnection.getInputStream());
-//            logger.log(Level.INFO, "Base map fetched from OpenStreetMap");
-
-            // 2. Stack multiple weather layers
-            // Order matters: drawn bottom to top
-            // For extreme weather monitoring: temperature, precipitation, clouds
-            String[] layers = {"temp_new", "precipitation_new", "clouds_new"};
-
-            for (String layer : layers) {
-                try {
-                    String weatherUrl = String.format(
-                            "http://tile.openweathermap.org/map/%s/%d/%d/%d.png?appid=%s",
-                            layer, zoom, x, y, apiKey
-                    );
-                    BufferedImage weatherLayer = ImageIO.read(URI.create(weatherUrl).toURL());
-
-                    // Overlay this weather layer on the base map
-                    Graphics2D g = baseMap.createGraphics();
-                    g.drawImage(weatherLayer, 0, 0, null);
-                    g.dispose();
-
-//                    logger.log(Level.INFO, "Applied " + layer + " layer");
-                } catch (IOException e) {
-                    logger.log(Level.WARNING, "Failed to fetch " + layer + " layer, continuing with other layers", e);
-                    // Continue with remaining layers even if one fails
+        int zoom = clamp(config.getInt("mapZoom", DEFAULT_ZOOM), 0, 18);
+        int columns = clamp(config.getInt("mapTilesWide", DEFAULT_TILES_WIDE), 1, MAX_TILES_PER_SIDE);
+        int rows = clamp(config.getInt("mapTilesHigh", DEFAULT_TILES_HIGH), 1, MAX_TILES_PER_SIDE);
+        int overlayZoom = Math.max(0, zoom - clamp(config.getInt("mapOverlayZoomOut", DEFAULT_OVERLAY_ZOOM_OUT),
+                0, MAX_OVERLAY_ZOOM_OUT));
+        int width = columns * TILE_SIZE;
+        int height = rows * TILE_SIZE;
+
+        // Web Mercator position of the location in world pixels; the window is centered on it
+        double worldSize = (double) TILE_SIZE * (1 << zoom);
+        double centerX = (lon + 180.0) / 360.0 * worldSize;
+        double centerY = (1.0 - Math.log(Math.tan(Math.toRadians(lat)) +
+                1.0 / Math.cos(Math.toRadians(lat))) / Math.PI) / 2.0 * worldSize;
+        int left = (int) Math.round(centerX - width / 2.0);
+        int top = (int) Math.round(centerY - height / 2.0);
+        Grid baseGrid = new Grid(zoom, zoom, left, top, width, height);
+        Grid overlayGrid = new Grid(overlayZoom, zoom, left, top, width, height);
+
+        Canvas canvas = canvasFor(String.format(Locale.ROOT, "%.2f,%.2f/%d/%dx%d", lat, lon, zoom, width, height),
+                width, height);
+
+        // Base map from OpenStreetMap, all tiles at once and from the TileCache when fresh
+        BufferedImage[] base = fetchTiles(baseGrid, "osm", "base", true,
+                (x, y) -> String.format("https://tile.openstreetmap.org/%d/%d/%d.png", zoom, x, y)).join();
+        boolean anyBase = false;
+        for (BufferedImage tile : base) {
+            anyBase |= tile != null;
+        }
+        if (!anyBase) {
+            logger.log(Level.SEVERE, "Failed to fetch base map");
+            return new StaticMap();
+        }
+        Mosaic mosaic = new Mosaic(left, top, baseGrid, overlayGrid, apiKey, base, canvas);
+        return new StaticMap(mosaic, DEFAULT_LAYERS, lat, lon);
+    }
+
+    interface TileUrl {
+        String of(int x, int y);
+    }
+
+    // Fetches every tile of one layer in parallel; tiles that fail (or lie beyond the poles) are null
+    private static CompletableFuture<BufferedImage[]> fetchTiles(Grid grid, String source, String layer,
+                                                                 boolean base, TileUrl url) {
+        int tilesPerSide = 1 << grid.zoom;
+        TileCache tiles = TileCache.getInstance();
+        List<CompletableFuture<BufferedImage>> futures = new ArrayList<>();
+        for (int row = 0; row < grid.rows; row++) {
+            for (int column = 0; column < grid.columns; column++) {
+                // Wrap around the antimeridian
+                int x = Math.floorMod(grid.firstX + column, tilesPerSide);
+                int y = grid.firstY + row;
+                if (y < 0 || y >= tilesPerSide) {
+                    futures.add(CompletableFuture.completedFuture(null));
+                    continue;
                 }
+                futures.add(tiles.getTile(new TileCache.Key(source, layer, grid.zoom, x, y, base), url.of(x, y))
+                        .exceptionally(e -> {
+                            logger.log(Level.WARNING, "Failed to fetch " + layer + " tile " + x + "/" + y, e);
+                            return null;
+                        }));
             }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            BufferedImage[] images = new BufferedImage[futures.size()];
+            for (int i = 0; i < images.length; i++) {
+                images[i] = futures.get(i).join();
+            }
+            return images;
+        });
+    }
 
-//            logger.log(Level.INFO, "Combined map with all weather layers created successfully");
-            return new StaticMap(baseMap, lat, lon);
+    private static Canvas canvasFor(String key, int width, int height) {
+        synchronized (canvases) {
+            Canvas canvas = canvases.get(key);
+            if (canvas == null) {
+                canvas = new Canvas(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE),
+                        new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE));
+                canvases.put(key, canvas);
+                if (canvases.size() > MAX_CANVASES) {
+                    Iterator<Canvas> eldest = canvases.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+            return canvas;
+        }
+    }
 
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to fetch base map", e);
-            return new StaticMap();
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Gets a view of this map showing the given weather layers, sharing every tile already loaded.
+     *
+     * @param layers OpenWeather layer names, drawn bottom to top (e.g. "temp_new", "clouds_new")
+     * @return A StaticMap whose getMapImage blends exactly these layers over the base map
+     */
+    public StaticMap withLayers(List<String> layers) {
+        return new StaticMap(mosaic, layers, lat, lon);
+    }
+
+    /**
+     * Gets the tiles of one weather overlay, fetching them on first use. If any tile failed,
+     * the layer is fetched again on the next call.
+     *
+     * @param layer OpenWeather layer name
+     * @return Future completing with the overlay tiles in row-major order (null where a tile is missing)
+     */
+    private CompletableFuture<BufferedImage[]> getLayerAsync(String layer) {
+        return mosaic.overlays.compute(layer, (name, existing) -> {
+            if (existing != null && !(existing.isDone() && hasGaps(mosaic.overlayGrid, existing.join()))) {
+                return existing;
+            }
+            Grid grid = mosaic.overlayGrid;
+            return fetchTiles(grid, "owm", name, false, (x, y) -> String.format(
+                    "http://tile.openweathermap.org/map/%s/%d/%d/%d.png?appid=%s",
+                    name, grid.zoom, x, y, mosaic.apiKey));
+        });
+    }
+
+    private static boolean hasGaps(Grid grid, BufferedImage[] tiles) {
+        int tilesPerSide = 1 << grid.zoom;
+        for (int i = 0; i < tiles.length; i++) {
+            int y = grid.firstY + i / grid.columns;
+            if (tiles[i] == null && y >= 0 && y < tilesPerSide) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blends this view's layers over the base map. The overlays it still needs are fetched in parallel;
+     * missing tiles are left out (and retried next time).
+     *
+     * The image is one of the location's two shared TYPE_INT_ARGB_PRE buffers. Pass it to markShown
+     * right before showing it; until then a later blend may redraw it in place. Copy it to keep it longer.
+     *
+     * @return Future completing with the composite (null for an empty map); never completes exceptionally
+     */
+    public CompletableFuture<BufferedImage> getMapImageAsync() {
+        if (mosaic == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        if (mosaic.apiKey == null) {
+            return CompletableFuture.completedFuture(mosaic.canvas.front());
+        }
+
+        List<CompletableFuture<BufferedImage[]>> layerFutures = new ArrayList<>();
+        for (String layer : layers) {
+            layerFutures.add(getLayerAsync(layer));
+        }
+        return CompletableFuture.allOf(layerFutures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> composite(layerFutures));
     }
 
+    private BufferedImage composite(List<CompletableFuture<BufferedImage[]>> layerFutures) {
+        Canvas canvas = mosaic.canvas;
+        synchronized (canvas.drawLock) {
+            if (canvas.drawnMosaic == mosaic && layers.equals(canvas.drawnLayers)) {
+                return canvas.drawn;
+            }
+
+            // Never the buffer on screen, read once here. A blend not shown yet may be redrawn: the UI
+            // then shows the newer blend instead, as markShown refuses a buffer still being drawn.
+            BufferedImage target;
+            synchronized (canvas) {
+                BufferedImage avoid = canvas.shown != null ? canvas.shown : canvas.drawn;
+                target = canvas.images[0] == avoid ? canvas.images[1] : canvas.images[0];
+                canvas.drawing = target;
+            }
+            boolean complete = true;
+            Graphics2D g = target.createGraphics();
+            try {
+                g.setColor(BACKGROUND);
+                g.fillRect(0, 0, target.getWidth(), target.getHeight());
+                drawTiles(g, mosaic.baseGrid, mosaic.base);
+                for (CompletableFuture<BufferedImage[]> layerFuture : layerFutures) {
+                    BufferedImage[] overlay = layerFuture.join();
+                    drawTiles(g, mosaic.overlayGrid, overlay);
+                    complete &= !hasGaps(mosaic.overlayGrid, overlay);
+                }
+            } finally {
+                g.dispose();
+                synchronized (canvas) {
+                    canvas.drawing = null;
+                }
+            }
+
+            // Only a blend with every tile present is reused as is
+            canvas.drawn = target;
+            canvas.drawnMosaic = complete ? mosaic : null;
+            canvas.drawnLayers = layers;
+            return target;
+        }
+    }
+
+    /**
+     * Records that the UI is about to show an image from getMapImageAsync, so blends leave that
+     * buffer alone until another one is shown. Never waits for a blend: if one is redrawing the
+     * image right now, the image is refused and that blend's result should be shown instead.
+     * Call on the FX thread right before showing the image.
+     *
+     * @param image The image about to be shown
+     * @return true if the image may be shown, false if it is being redrawn
+     */
+    public boolean markShown(BufferedImage image) {
+        if (mosaic == null) {
+            return true;
+        }
+        Canvas canvas = mosaic.canvas;
+        synchronized (canvas) {
+            if (image == canvas.drawing) {
+                return false;
+            }
+            canvas.shown = image;
+            return true;
+        }
+    }
+
+    private void drawTiles(Graphics2D g, Grid grid, BufferedImage[] tiles) {
+        int size = TILE_SIZE * grid.scale;
+        if (grid.scale > 1) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                int x = (grid.firstX + i % grid.columns) * size - mosaic.left;
+                int y = (grid.firstY + i / grid.columns) * size - mosaic.top;
+                if (grid.scale == 1) {
+                    g.drawImage(tiles[i], x, y, null);
+                } else {
+                    g.drawImage(tiles[i], x, y, size, size, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches one overlay for this map's window without keeping it, e.g. a radar frame.
+     *
+     * @param source Tile server name used in the TileCache key
+     * @param layer Layer name used in the TileCache key
+     * @param longLived Whether the tiles never change (cached with the base map TTL)
+     * @param url Builds the URL of tile x/y at getOverlayZoom()
+     * @return Future completing with the tiles in row-major order (null where a tile is missing)
+     */
+    CompletableFuture<BufferedImage[]> fetchOverlay(String source, String layer, boolean longLived, TileUrl url) {
+        return fetchTiles(mosaic.overlayGrid, source, layer, longLived, url);
+    }
+
+    /**
+     * Draws the base map with one overlay into a caller-owned image of the map's size.
+     */
+    void drawFrame(BufferedImage target, BufferedImage[] overlay) {
+        Graphics2D g = target.createGraphics();
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, target.getWidth(), target.getHeight());
+        drawTiles(g, mosaic.baseGrid, mosaic.base);
+        drawTiles(g, mosaic.overlayGrid, overlay);
+        g.dispose();
+    }
+
+    // Overlays are fetched at this zoom, which may be further out than the base map's
+    int getOverlayZoom() { return mosaic.overlayGrid.zoom; }
+    int getWidth() { return mosaic.canvas.front().getWidth(); }
+    int getHeight() { return mosaic.canvas.front().getHeight(); }
+
+    /**
+     * Whether this map was built from tiles (rather than a ready-made image) and can take overlays.
+     */
+    boolean hasTileSource() {
+        return mosaic != null && mosaic.apiKey != null;
+    }
+
+    String getApiKey() { return mosaic.apiKey; }
+
     public boolean isEmpty() {
-        return mapImage == null;
+        return mosaic == null || mosaic.canvas.front() == null;
     }
 
     // Getters
-    public BufferedImage getMapImage() { return mapImage; }
+    public BufferedImage getMapImage() { return getMapImageAsync().join(); }
+    public List<String> getLayers() { return layers; }
     public double getLat() { return lat; }
     public double getLon() { return lon; }
 }
@@ -0,0 +1,376 @@
+package com.weatherboys.weatherguard.Weather;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * TileCache - Disk-backed store for map tiles with an in-memory LRU of decoded images
+ *
+ * Tiles are keyed by (source, layer, z, x, y) and never by URL, so the API key is not part of the key.
+ * - Fresh tiles (younger than the TTL of their kind) are served from memory or disk without any HTTP call
+ * - Expired tiles are revalidated with If-None-Match / If-Modified-Since; a 304 keeps the stored copy
+ * - If revalidation fails, the expired copy is served rather than no tile at all
+ * - The disk store is capped in size; the least recently used tiles are evicted first
+ * OpenStreetMap's tile usage policy asks clients to cache, so base tiles get a long TTL and
+ * weather overlays, which OpenWeather redraws about every 10 minutes, a short one.
+ *
+ * Files: tile_cache/source/layer/z/x/y.png with a y.properties sidecar (ETag, Last-Modified, fetch time).
+ * Config keys (config.properties): tileCacheDir, tileCacheMaxMegabytes, tileMemoryCacheSize,
+ * tileBaseTtlSeconds, tileWeatherTtlSeconds.
+ */
+public class TileCache {
+
+    private static final Logger logger = Logger.getLogger(TileCache.class.getName());
+
+    static final String DEFAULT_DIR = "tile_cache";
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    // Enough for every layer of a 3x3 map window (4x4 tiles when off the tile grid)
+    static final int DEFAULT_MEMORY_TILES = 64;
+    static final long DEFAULT_BASE_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    static final long DEFAULT_WEATHER_TTL_MILLIS = 10 * 60 * 1000L;
+
+    private static TileCache instance;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int memoryTiles;
+    private final LongSupplier clock;
+
+    // Updated when config.properties changes
+    private volatile long baseTtlMillis = DEFAULT_BASE_TTL_MILLIS;
+    private volatile long weatherTtlMillis = DEFAULT_WEATHER_TTL_MILLIS;
+
+    // Both maps are in access order (least recently used first) and guarded by this
+    private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Stored> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Identifies one tile independently of the URL it was fetched from.
+     *
+     * @param source Tile server, e.g. "osm" or "owm"
+     * @param layer Layer name, e.g. "base" or "precipitation_new"
+     * @param base Whether this is a base map tile (long TTL) rather than a weather overlay (short TTL)
+     */
+    public record Key(String source, String layer, int z, int x, int y, boolean base) {
+
+        String id() {
+            return source + "/" + layer + "/" + z + "/" + x + "/" + y;
+        }
+    }
+
+    // What the disk holds for one tile
+    private static class Stored {
+        final long bytes;
+        final long fetchedAt;
+        final String etag;
+        final String lastModified;
+
+        Stored(long bytes, long fetchedAt, String etag, String lastModified) {
+            this.bytes = bytes;
+            this.fetchedAt = fetchedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    TileCache(Path directory, long maxBytes, int memoryTiles, LongSupplier clock) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.memoryTiles = memoryTiles;
+        this.clock = clock;
+        scan();
+    }
+
+    /**
+     * Gets the shared cache, indexing the tiles already on disk on first use.
+     *
+     * @return The process-wide TileCache
+     */
+    public static synchronized TileCache getInstance() {
+        if (instance == null) {
+            ConfigSnapshot config = ConfigManager.getConfig();
+            instance = new TileCache(
+                    Paths.get(config.get("tileCacheDir", DEFAULT_DIR)),
+                    config.getLong("tileCacheMaxMegabytes", DEFAULT_MAX_BYTES / (1024 * 1024)) * 1024 * 1024,
+                    config.getInt("tileMemoryCacheSize", DEFAULT_MEMORY_TILES),
+                    System::currentTimeMillis);
+            TileCache cache = instance;
+            cache.applyConfig(config);
+            ConfigManager.addListener((previous, current) -> cache.applyConfig(current));
+        }
+        return instance;
+    }
+
+    private void applyConfig(ConfigSnapshot config) {
+        baseTtlMillis = config.getLong("tileBaseTtlSeconds", DEFAULT_BASE_TTL_MILLIS / 1000) * 1000L;
+        weatherTtlMillis = config.getLong("tileWeatherTtlSeconds", DEFAULT_WEATHER_TTL_MILLIS / 1000) * 1000L;
+    }
+
+    /**
+     * Gets a decoded tile, from memory, disk or the network as described in the class comment.
+     * Callers must not draw on the returned image; it is shared with later callers.
+     *
+     * @param key Which tile
+     * @param url Where to fetch it from when it is missing or expired
+     * @return Future completing with the tile, or exceptionally if it is neither cached nor fetchable
+     */
+    public CompletableFuture<BufferedImage> getTile(Key key, String url) {
+        String id = key.id();
+        long ttl = key.base() ? baseTtlMillis : weatherTtlMillis;
+        Stored stored;
+        BufferedImage image;
+        synchronized (this) {
+            stored = disk.get(id);
+            image = memory.get(id);
+        }
+
+        if (stored != null && clock.getAsLong() - stored.fetchedAt < ttl) {
+            if (image != null) {
+                memoryHits.incrementAndGet();
+                return CompletableFuture.completedFuture(image);
+            }
+            image = readStored(id);
+            if (image != null) {
+                diskHits.incrementAndGet();
+                return CompletableFuture.completedFuture(image);
+            }
+            stored = null;
+        }
+        return fetch(key, url, stored);
+    }
+
+    private CompletableFuture<BufferedImage> fetch(Key key, String url, Stored stored) {
+        String id = key.id();
+        Map<String, String> headers = new HashMap<>();
+        if (stored != null) {
+            if (stored.etag != null) {
+                headers.put("If-None-Match", stored.etag);
+            }
+            if (stored.lastModified != null) {
+                headers.put("If-Modified-Since", stored.lastModified);
+            }
+        }
+
+        return HttpGateway.getInstance().getBytesAsync(url, headers).handle((response, error) -> {
+            try {
+                if (error != null) {
+                    throw new IOException("Tile request failed: " + HttpGateway.redact(url), error);
+                }
+                if (response.statusCode() == 304 && stored != null) {
+                    BufferedImage image = readStored(id);
+                    if (image != null) {
+                        revalidations.incrementAndGet();
+                        Stored renewed = new Stored(stored.bytes, clock.getAsLong(),
+                                header(response, "ETag", stored.etag), header(response, "Last-Modified", stored.lastModified));
+                        writeMetadata(id, renewed);
+                        synchronized (this) {
+                            disk.put(id, renewed);
+                        }
+                        return image;
+                    }
+                    throw new IOException("Cached tile vanished during revalidation: " + id);
+                }
+                if (response.statusCode() != 200) {
+                    throw new IOException("HTTP " + response.statusCode() + " from " + HttpGateway.redact(url));
+                }
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.body()));
+                if (image == null) {
+                    throw new IOException("Unreadable tile from " + HttpGateway.redact(url));
+                }
+                downloads.incrementAndGet();
+                store(id, response.body(), image,
+                        header(response, "ETag", null), header(response, "Last-Modified", null));
+                return image;
+            } catch (IOException e) {
+                // An expired tile is still a better map than a missing one
+                BufferedImage image = stored != null ? readStored(id) : null;
+                if (image != null) {
+                    staleServed.incrementAndGet();
+                    logger.log(Level.WARNING, "Serving expired tile " + id + ": " + e.getMessage());
+                    return image;
+                }
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static String header(HttpResponse<?> response, String name, String fallback) {
+        return response.headers().firstValue(name).orElse(fallback);
+    }
+
+    // Decodes a tile from disk into the memory LRU; null if it cannot be read
+    private BufferedImage readStored(String id) {
+        synchronized (this) {
+            BufferedImage image = memory.get(id);
+            if (image != null) {
+                return image;
+            }
+        }
+        try {
+            BufferedImage image = ImageIO.read(imageFile(id).toFile());
+            if (image != null) {
+                remember(id, image);
+            }
+            return image;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to read cached tile " + id, e);
+            return null;
+        }
+    }
+
+    private synchronized void remember(String id, BufferedImage image) {
+        memory.put(id, image);
+        while (memory.size() > memoryTiles) {
+            Iterator<String> eldest = memory.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void store(String id, byte[] body, BufferedImage image, String etag, String lastModified) {
+        Stored stored = new Stored(body.length, clock.getAsLong(), etag, lastModified);
+        try {
+            Path file = imageFile(id);
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "tile", ".tmp");
+            Files.write(temp, body);
+            // Replace in one step so a crash never leaves a half-written tile
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeMetadata(id, stored);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to store tile " + id, e);
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Stored previous = disk.put(id, stored);
+            diskBytes += stored.bytes - (previous != null ? previous.bytes : 0);
+            Iterator<Map.Entry<String, Stored>> iterator = disk.entrySet().iterator();
+            while (diskBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Stored> eldest = iterator.next();
+                if (eldest.getKey().equals(id)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue().bytes;
+                memory.remove(eldest.getKey());
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        remember(id, image);
+
+        for (String old : evicted) {
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(imageFile(old));
+                Files.deleteIfExists(metadataFile(old));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to evict tile " + old, e);
+            }
+        }
+    }
+
+    private void writeMetadata(String id, Stored stored) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty("fetchedAt", Long.toString(stored.fetchedAt));
+        if (stored.etag != null) {
+            metadata.setProperty("etag", stored.etag);
+        }
+        if (stored.lastModified != null) {
+            metadata.setProperty("lastModified", stored.lastModified);
+        }
+        try (var outputStream = Files.newOutputStream(metadataFile(id))) {
+            metadata.store(outputStream, null);
+        }
+    }
+
+    // Indexes the tiles left by earlier runs, oldest first so they are evicted first
+    private void scan() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(path -> path.toString().endsWith(".png")).toList();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to index tile cache: " + directory, e);
+            return;
+        }
+
+        List<Map.Entry<String, Stored>> found = new ArrayList<>();
+        for (Path file : files) {
+            String name = directory.relativize(file).toString().replace('\\', '/');
+            String id = name.substring(0, name.length() - ".png".length());
+            Properties metadata = new Properties();
+            try (var inputStream = Files.newInputStream(metadataFile(id))) {
+                metadata.load(inputStream);
+                found.add(Map.entry(id, new Stored(Files.size(file),
+                        Long.parseLong(metadata.getProperty("fetchedAt", "0")),
+                        metadata.getProperty("etag"), metadata.getProperty("lastModified"))));
+            } catch (IOException | NumberFormatException e) {
+                logger.log(Level.FINE, "Skipping tile without usable metadata: " + id);
+            }
+        }
+        found.sort(Comparator.comparingLong(entry -> entry.getValue().fetchedAt));
+        for (Map.Entry<String, Stored> entry : found) {
+            disk.put(entry.getKey(), entry.getValue());
+            diskBytes += entry.getValue().bytes;
+        }
+    }
+
+    private Path imageFile(String id) {
+        return directory.resolve(id + ".png");
+    }
+
+    private Path metadataFile(String id) {
+        return directory.resolve(id + ".properties");
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getRevalidations() { return revalidations.get(); }
+    public long getDownloads() { return downloads.get(); }
+    public long getStaleServed() { return staleServed.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public synchronized long getDiskBytes() { return diskBytes; }
+
+    @Override
+    public synchronized String toString() {
+        return "TileCache: " + disk.size() + " tiles (" + diskBytes / 1024 + " KB) on disk, "
+                + memory.size() + " in memory, " + memoryHits.get() + " memory hits, " + diskHits.get()
+                + " disk hits, " + revalidations.get() + " revalidated, " + downloads.get() + " downloads, "
+                + staleServed.get() + " stale, " + evictions.get() + " evicted";
+    }
+}
@@ -1,13 +1,13 @@
 package com.weatherboys.weatherguard.Weather;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.StringJoiner;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -80,15 +80,19 @@ public class Weather {
         this.icon = icon;
     }
 
-    // Create a Weather object for a given city
+    // Create a Weather object for a given city, served from the WeatherCache when fresh
     public static Weather fetchWeatherForCity(String city) {
-        String apiKey = null;
-        try {
-            Properties config = ConfigManager.loadConfig();
-            apiKey = config.getProperty("apiKey");
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Unable to load API key from config", e);
-        }
+        return WeatherCache.getInstance().getWeather(city, () -> requestWeatherForCity(city));
+    }
+
+    // Fetch current weather for a city from the API and replace the cached entry, even if it is fresh
+    static Weather refreshWeatherForCity(String city) {
+        return WeatherCache.getInstance().refreshWeather(city, () -> requestWeatherForCity(city));
+    }
+
+    // Request current weather for a city from the API, bypassing the cache
+    static Weather requestWeatherForCity(String city) {
+        String apiKey = ConfigManager.getConfig().get("apiKey");
 
         if (apiKey == null || apiKey.trim().isEmpty()) {
             logger.log(Level.SEVERE, "API key is missing or empty in config");
@@ -103,11 +107,47 @@ public class Weather {
         }
 
         JSONObject obj = new JSONObject(response.body());
-        return parseWeatherData(obj);
+        Weather weather = parseWeatherData(obj);
+
+        // Remember where the city is (and its ID) so later fetches need not wait for this call
+        GeocodeCache.getInstance().put(city, weather.getLat(), weather.getLon(), obj.optLong("id", 0));
+        return weather;
+    }
+
+    // Request current weather for up to 20 OpenWeather city IDs with one group call, bypassing the cache
+    static Map<Long, Weather> requestWeatherForCityIds(List<Long> ids) {
+        Map<Long, Weather> result = new HashMap<>();
+        String apiKey = ConfigManager.getConfig().get("apiKey");
+
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            logger.log(Level.SEVERE, "API key is missing or empty in config");
+            return result;
+        }
+
+        StringJoiner idList = new StringJoiner(",");
+        ids.forEach(id -> idList.add(Long.toString(id)));
+        String requestURL = "http://api.openweathermap.org/data/2.5/group?id=" + idList + "&APPID=" + apiKey;
+        HttpResponse<String> response = invokeGET(requestURL);
+
+        if (response == null || response.body() == null || response.statusCode() != 200) {
+            return result;
+        }
+
+        JSONArray list = new JSONObject(response.body()).getJSONArray("list");
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject item = list.getJSONObject(i);
+            try {
+                result.put(item.getLong("id"), parseWeatherData(item));
+            } catch (RuntimeException e) {
+                // One malformed city must not lose the rest of the group
+                logger.log(Level.WARNING, "Skipping unreadable city in group response", e);
+            }
+        }
+        return result;
     }
 
-    // Parse weather data from JSON response and return a Weather object
-    private static Weather parseWeatherData(JSONObject obj) {
+    // Parse weather data from a current-weather (or group list) JSON object and return a Weather object
+    static Weather parseWeatherData(JSONObject obj) {
         JSONArray weatherArray = obj.getJSONArray("weather");
         JSONObject mainObj = obj.getJSONObject("main");
         JSONObject sysObj = obj.getJSONObject("sys");
@@ -134,11 +174,12 @@ public class Weather {
         int minTempC = kelvinToCelsius(tempMinKelvin);
 
         int humidity = mainObj.getInt("humidity");
-        int visibility = (int) (obj.getDouble("visibility") / 1000);
+        // Group responses may omit visibility, and carry the timezone under sys
+        int visibility = (int) (obj.optDouble("visibility", 10000) / 1000);
         long sunrise = sysObj.getLong("sunrise");
         long sunset = sysObj.getLong("sunset");
         String country = sysObj.getString("country");
-        int timezone = obj.getInt("timezone");
+        int timezone = obj.has("timezone") ? obj.getInt("timezone") : sysObj.optInt("timezone", 0);
         double lon = coordObj.getDouble("lon");
         double lat = coordObj.getDouble("lat");
         long time = obj.getLong("dt");
@@ -213,17 +254,9 @@ public class Weather {
                "Wind: " + wind + "\n";
     }
 
-    // Invoke a GET request to the given URL
+    // Invoke a GET request to the given URL through the shared HttpGateway
     static HttpResponse<String> invokeGET(String requestURL) {
-        HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(requestURL)).GET().build();
-        HttpResponse<String> response = null;
-        try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            logger.log(Level.SEVERE, "ERROR:Weather:HttpResponse", e);
-        }
-        return response;
+        return HttpGateway.getInstance().getString(requestURL);
     }
 
     // Getter for properties for testing purposes
@@ -0,0 +1,190 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WeatherBatch - Current weather for many cities in as few API calls as possible
+ *
+ * Each distinct city is answered by the cheapest source that has it:
+ * - The WeatherCache, when its entry is fresh (no call)
+ * - OpenWeather's group endpoint, up to MAX_GROUP_SIZE city IDs per call, for cities whose ID is
+ *   known (stored with the class when its roster is uploaded, or learned by GeocodeCache from the
+ *   city's first single-city response)
+ * - A single-city fetch through the WeatherCache otherwise, or if the group call missed the city
+ * Group results are stored in the WeatherCache just like single fetches, so a class opened afterwards
+ * finds its weather there. Calls run on a small pool (weatherBatchParallelism threads) and go through
+ * the ApiBudget in the caller's lane: 200 classes with known IDs take 10 group calls in one wave.
+ *
+ * Config key (config.properties, read on first use): weatherBatchParallelism.
+ */
+public class WeatherBatch {
+
+    private static final Logger logger = Logger.getLogger(WeatherBatch.class.getName());
+
+    // The group endpoint's limit
+    static final int MAX_GROUP_SIZE = 20;
+    static final int DEFAULT_PARALLELISM = 4;
+
+    private static WeatherBatch instance;
+
+    private final WeatherCache cache;
+    private final ToLongFunction<String> cityIds;
+    private final Function<List<Long>, Map<Long, Weather>> groupLoader;
+    private final Function<String, Weather> singleLoader;
+    private final Executor executor;
+
+    private final AtomicLong groupRequests = new AtomicLong();
+    private final AtomicLong singleRequests = new AtomicLong();
+
+    /**
+     * @param cache Where results are looked up and stored
+     * @param cityIds Gets a city's OpenWeather ID, 0 if unknown
+     * @param groupLoader Fetches up to MAX_GROUP_SIZE cities by ID from the API
+     * @param singleLoader Fetches one city by name from the API
+     * @param executor Runs the API calls; fetch must not be called from one of its threads
+     */
+    WeatherBatch(WeatherCache cache, ToLongFunction<String> cityIds, Function<List<Long>, Map<Long, Weather>> groupLoader,
+                 Function<String, Weather> singleLoader, Executor executor) {
+        this.cache = cache;
+        this.cityIds = cityIds;
+        this.groupLoader = groupLoader;
+        this.singleLoader = singleLoader;
+        this.executor = executor;
+    }
+
+    /**
+     * @return The shared batch fetcher
+     */
+    public static synchronized WeatherBatch getInstance() {
+        if (instance == null) {
+            int parallelism = Math.max(1, ConfigManager.getConfig().getInt("weatherBatchParallelism", DEFAULT_PARALLELISM));
+            instance = new WeatherBatch(WeatherCache.getInstance(), GeocodeCache.getInstance()::lookupId,
+                    Weather::requestWeatherForCityIds, Weather::requestWeatherForCity,
+                    Executors.newFixedThreadPool(parallelism, r -> {
+                        Thread thread = new Thread(r, "weather-batch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }));
+        }
+        return instance;
+    }
+
+    /**
+     * Gets current weather for many cities at once (e.g. every active class). Blocks until all
+     * are answered, so call it off the FX thread.
+     *
+     * @param cities City names as used in the OpenWeather query; duplicates are fetched once
+     * @return Weather for every given city name, in the given order (empty Weather where fetching failed)
+     */
+    public static Map<String, Weather> fetchWeatherForCities(Collection<String> cities) {
+        return getInstance().fetch(cities);
+    }
+
+    Map<String, Weather> fetch(Collection<String> cities) {
+        long start = System.nanoTime();
+        ApiBudget.Priority priority = ApiBudget.currentPriority();
+
+        // One representative name per cache key
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String city : cities) {
+            if (city != null && !city.trim().isEmpty()) {
+                names.putIfAbsent(key(city), city);
+            }
+        }
+
+        Map<String, Weather> found = new HashMap<>();
+        Map<Long, List<String>> byId = new LinkedHashMap<>();
+        List<String> singles = new ArrayList<>();
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            Weather cached = cache.peekWeather(entry.getValue());
+            if (cached != null) {
+                found.put(entry.getKey(), cached);
+                continue;
+            }
+            long id = cityIds.applyAsLong(entry.getValue());
+            if (id > 0) {
+                byId.computeIfAbsent(id, ignored -> new ArrayList<>()).add(entry.getValue());
+            } else {
+                singles.add(entry.getValue());
+            }
+        }
+
+        // Every group call at once
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        List<CompletableFuture<Map<Long, Weather>>> groups = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += MAX_GROUP_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + MAX_GROUP_SIZE, ids.size()));
+            groupRequests.incrementAndGet();
+            groups.add(CompletableFuture.supplyAsync(() -> ApiBudget.callWith(priority, () -> groupLoader.apply(chunk)),
+                    executor).exceptionally(e -> {
+                        logger.log(Level.WARNING, "Group weather request failed", e);
+                        return Map.of();
+                    }));
+        }
+        Map<Long, Weather> grouped = new HashMap<>();
+        for (CompletableFuture<Map<Long, Weather>> group : groups) {
+            grouped.putAll(group.join());
+        }
+        for (Map.Entry<Long, List<String>> entry : byId.entrySet()) {
+            Weather weather = grouped.get(entry.getKey());
+            for (String city : entry.getValue()) {
+                if (weather == null || weather.isEmpty()) {
+                    // Missing from the group response: ask for the city on its own
+                    singles.add(city);
+                } else {
+                    cache.refreshWeather(city, () -> weather);
+                    found.put(key(city), weather);
+                }
+            }
+        }
+
+        // Single-city fetches go through the cache, which may still serve a stale entry if they fail
+        Map<String, CompletableFuture<Weather>> pending = new LinkedHashMap<>();
+        for (String city : singles) {
+            singleRequests.incrementAndGet();
+            pending.put(key(city), CompletableFuture.supplyAsync(() -> ApiBudget.callWith(priority,
+                    () -> cache.getWeather(city, () -> singleLoader.apply(city))), executor).exceptionally(e -> {
+                        logger.log(Level.WARNING, "Weather request for " + city + " failed", e);
+                        return new Weather();
+                    }));
+        }
+        pending.forEach((key, future) -> found.put(key, future.join()));
+
+        Map<String, Weather> result = new LinkedHashMap<>();
+        for (String city : cities) {
+            if (city != null) {
+                Weather weather = city.trim().isEmpty() ? null : found.get(key(city));
+                result.put(city, weather == null ? new Weather() : weather);
+            }
+        }
+        logger.log(Level.FINE, String.format("Fetched weather for %d cities with %d group and %d single requests in %d ms",
+                names.size(), groups.size(), singles.size(), (System.nanoTime() - start) / 1_000_000));
+        return result;
+    }
+
+    private static String key(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public long getGroupRequests() { return groupRequests.get(); }
+    public long getSingleRequests() { return singleRequests.get(); }
+
+    @Override
+    public String toString() {
+        return "WeatherBatch: " + groupRequests.get() + " group requests, " + singleRequests.get() + " single requests";
+    }
+}
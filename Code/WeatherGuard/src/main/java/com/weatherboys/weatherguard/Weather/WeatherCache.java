@@ -0,0 +1,259 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WeatherCache - Process-wide cache for weather, forecast and map fetches
+ *
+ * OpenWeather only updates current conditions about every 10 minutes, so every
+ * Weather, Forecast and StaticMap fetch goes through this cache:
+ * - Fresh entries (younger than their TTL) are returned without any HTTP call
+ * - Stale entries are returned immediately while one background refresh replaces them
+ * - Entries older than TTL + MAX_STALE_MILLIS, and misses, are fetched on the calling thread
+ * Empty results (failed fetches) are never cached, so the next call retries.
+ *
+ * Keys: current weather by city name, forecast and map by coordinates (2 decimals, ~1 km).
+ * A map holds its base and overlay tiles, so only the mapCacheMaxEntries most recently used
+ * maps are kept; an evicted map is rebuilt from the TileCache. Weather and forecasts are small
+ * and one per class city, so they are not bounded.
+ * TTLs can be overridden in config.properties with weatherCacheTtlSeconds,
+ * forecastCacheTtlSeconds and mapCacheTtlSeconds.
+ */
+public class WeatherCache {
+
+    private static final Logger logger = Logger.getLogger(WeatherCache.class.getName());
+
+    static final long DEFAULT_WEATHER_TTL_MILLIS = 10 * 60 * 1000L;
+    static final long DEFAULT_FORECAST_TTL_MILLIS = 30 * 60 * 1000L;
+    static final long DEFAULT_MAP_TTL_MILLIS = 15 * 60 * 1000L;
+    static final int DEFAULT_MAX_MAPS = 8;
+
+    // How long past its TTL an entry may still be served while it is being refreshed
+    static final long MAX_STALE_MILLIS = 60 * 60 * 1000L;
+
+    private static WeatherCache instance;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Keys of cached maps, least recently used first; guarded by the map itself
+    private final Map<String, Boolean> recentMaps = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            if (size() <= maxMaps) {
+                return false;
+            }
+            entries.remove(eldest.getKey());
+            return true;
+        }
+    };
+    private final LongSupplier clock;
+    private final Executor refresher;
+
+    // Updated when config.properties changes
+    private volatile long weatherTtlMillis = DEFAULT_WEATHER_TTL_MILLIS;
+    private volatile long forecastTtlMillis = DEFAULT_FORECAST_TTL_MILLIS;
+    private volatile long mapTtlMillis = DEFAULT_MAP_TTL_MILLIS;
+    private volatile int maxMaps = DEFAULT_MAX_MAPS;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class Entry {
+        final Object value;
+        final long fetchedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Object value, long fetchedAt) {
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    WeatherCache(LongSupplier clock, Executor refresher) {
+        this.clock = clock;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Gets the shared cache, reading TTL overrides from config (and following later edits).
+     *
+     * @return The process-wide WeatherCache
+     */
+    public static synchronized WeatherCache getInstance() {
+        if (instance == null) {
+            instance = new WeatherCache(System::currentTimeMillis, Executors.newFixedThreadPool(2, r -> {
+                Thread thread = new Thread(r, "weather-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            WeatherCache cache = instance;
+            cache.applyConfig(ConfigManager.getConfig());
+            ConfigManager.addListener((previous, current) -> cache.applyConfig(current));
+        }
+        return instance;
+    }
+
+    private void applyConfig(ConfigSnapshot config) {
+        weatherTtlMillis = config.getLong("weatherCacheTtlSeconds", DEFAULT_WEATHER_TTL_MILLIS / 1000) * 1000L;
+        forecastTtlMillis = config.getLong("forecastCacheTtlSeconds", DEFAULT_FORECAST_TTL_MILLIS / 1000) * 1000L;
+        mapTtlMillis = config.getLong("mapCacheTtlSeconds", DEFAULT_MAP_TTL_MILLIS / 1000) * 1000L;
+        maxMaps = Math.max(1, config.getInt("mapCacheMaxEntries", DEFAULT_MAX_MAPS));
+    }
+
+    /**
+     * Gets current weather for a city.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @param loader Fetches the weather from the API
+     * @return Cached or freshly fetched weather (empty if the fetch failed)
+     */
+    Weather getWeather(String city, Supplier<Weather> loader) {
+        return get(weatherKey(city), weatherTtlMillis, loader, Weather::isEmpty);
+    }
+
+    /**
+     * Gets current weather for a city only if a fresh entry is cached, without fetching.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @return The cached weather, or null if it is missing or past its TTL
+     */
+    Weather peekWeather(String city) {
+        Entry entry = entries.get(weatherKey(city));
+        if (entry == null || clock.getAsLong() - entry.fetchedAt >= weatherTtlMillis) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return (Weather) entry.value;
+    }
+
+    /**
+     * Fetches current weather for a city even if the cached entry is still fresh, for when the
+     * provider is known to have published a newer observation. A failed fetch keeps the old entry.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @param loader Fetches the weather from the API
+     * @return The fetched weather (empty if the fetch failed)
+     */
+    Weather refreshWeather(String city, Supplier<Weather> loader) {
+        return load(weatherKey(city), loader, Weather::isEmpty);
+    }
+
+    private static String weatherKey(String city) {
+        return "weather:" + city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the forecast for a location.
+     */
+    Forecast getForecast(double lat, double lon, Supplier<Forecast> loader) {
+        return get("forecast:" + coordinates(lat, lon), forecastTtlMillis, loader, Forecast::isEmpty);
+    }
+
+    /**
+     * Gets the weather map for a location. Beyond the most recent mapCacheMaxEntries maps,
+     * the least recently used one is dropped.
+     */
+    StaticMap getMap(double lat, double lon, Supplier<StaticMap> loader) {
+        String key = "map:" + coordinates(lat, lon);
+        StaticMap map = get(key, mapTtlMillis, loader, StaticMap::isEmpty);
+        synchronized (recentMaps) {
+            if (entries.containsKey(key)) {
+                recentMaps.put(key, Boolean.TRUE);
+            }
+        }
+        return map;
+    }
+
+    private static String coordinates(double lat, double lon) {
+        return String.format(Locale.ROOT, "%.2f,%.2f", lat, lon);
+    }
+
+    /**
+     * Returns the cached value for key, fetching or refreshing it as described in the class comment.
+     *
+     * @param key Cache key
+     * @param ttlMillis How long a fetched value is fresh
+     * @param loader Fetches a new value
+     * @param isEmpty Recognizes failed fetches, which are not cached
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, long ttlMillis, Supplier<T> loader, Predicate<T> isEmpty) {
+        long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            long age = now - entry.fetchedAt;
+            if (age < ttlMillis) {
+                hits.incrementAndGet();
+                return (T) entry.value;
+            }
+            if (age < ttlMillis + MAX_STALE_MILLIS) {
+                staleHits.incrementAndGet();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    refresher.execute(() -> {
+                        try {
+                            // The caller already has a value, so the refresh yields to view loads
+                            ApiBudget.runWith(ApiBudget.Priority.BACKGROUND, () -> load(key, loader, isEmpty));
+                        } finally {
+                            entry.refreshing.set(false);
+                        }
+                    });
+                }
+                return (T) entry.value;
+            }
+        }
+
+        misses.incrementAndGet();
+        T value = load(key, loader, isEmpty);
+        if ((value == null || isEmpty.test(value)) && entry != null) {
+            // Too old to be served normally, but better than nothing while the API is down
+            return (T) entry.value;
+        }
+        return value;
+    }
+
+    private <T> T load(String key, Supplier<T> loader, Predicate<T> isEmpty) {
+        T value = loader.get();
+        if (value != null && !isEmpty.test(value)) {
+            entries.put(key, new Entry(value, clock.getAsLong()));
+        } else {
+            logger.log(Level.WARNING, "Fetch for " + key + " returned no data; not cached");
+        }
+        return value;
+    }
+
+    /**
+     * Drops every cached entry, forcing the next calls to fetch.
+     */
+    public void clear() {
+        synchronized (recentMaps) {
+            entries.clear();
+            recentMaps.clear();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getStaleHits() { return staleHits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    @Override
+    public String toString() {
+        return "WeatherCache: " + entries.size() + " entries, " + hits.get() + " hits, "
+                + staleHits.get() + " stale hits, " + misses.get() + " misses";
+    }
+}
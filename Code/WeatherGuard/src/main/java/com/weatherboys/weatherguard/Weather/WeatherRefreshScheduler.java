@@ -0,0 +1,272 @@
+package com.weatherboys.weatherguard.Weather;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WeatherRefreshScheduler - Keeps the weather of observed cities current in the background
+ *
+ * OpenWeather publishes a new observation for a city about every 10 minutes, stamped with its
+ * measurement time (dt). Instead of polling on a fixed timer, each city is checked just after its
+ * next observation is due (dt + update interval) plus a random jitter, so open classes do not all
+ * hit the API in the same second. If the provider is late and dt has not moved, the city is retried
+ * with a doubling delay, capped at the update interval.
+ *
+ * Views observe a city and are told after each new observation has been fetched into the
+ * WeatherCache. A city shared by several open classes is fetched once for all of them, and a city
+ * nobody observes any more is dropped with its pending check.
+ *
+ * Config keys (config.properties): weatherUpdateIntervalSeconds, weatherRefreshJitterSeconds.
+ */
+public class WeatherRefreshScheduler {
+
+    private static final Logger logger = Logger.getLogger(WeatherRefreshScheduler.class.getName());
+
+    static final long DEFAULT_UPDATE_INTERVAL_MILLIS = 10 * 60 * 1000L;
+    static final long DEFAULT_JITTER_MILLIS = 60 * 1000L;
+
+    // First retry when the provider has not published yet, doubled up to the update interval
+    static final long MIN_RETRY_MILLIS = 60 * 1000L;
+
+    private static WeatherRefreshScheduler instance;
+
+    private final ScheduledExecutorService executor;
+    private final LongSupplier clock;
+    private final LongUnaryOperator jitter;
+    private final Function<String, Weather> cached;
+    private final Function<String, Weather> refresh;
+
+    // Observed cities by normalized name, guarded by this
+    private final Map<String, City> cities = new HashMap<>();
+
+    // Updated when config.properties changes
+    private volatile long updateIntervalMillis = DEFAULT_UPDATE_INTERVAL_MILLIS;
+    private volatile long jitterMillis = DEFAULT_JITTER_MILLIS;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    private static class City {
+        final String key;
+        final String name;
+        final List<Runnable> observers = new CopyOnWriteArrayList<>();
+
+        // Written only by the check running for this city; checks of one city never overlap
+        long lastObservation;
+        long retryMillis = MIN_RETRY_MILLIS;
+
+        // Guarded by the scheduler
+        ScheduledFuture<?> next;
+
+        City(String key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A view's interest in a city. Close it when the view stops showing the city.
+     */
+    public final class Observation implements AutoCloseable {
+        private final City city;
+        private final Runnable onRefresh;
+        private boolean closed;
+
+        private Observation(City city, Runnable onRefresh) {
+            this.city = city;
+            this.onRefresh = onRefresh;
+        }
+
+        /**
+         * Stops notifying the observer, and stops refreshing the city if it was the last one.
+         */
+        @Override
+        public void close() {
+            synchronized (WeatherRefreshScheduler.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                city.observers.remove(onRefresh);
+                if (city.observers.isEmpty() && cities.get(city.key) == city) {
+                    cities.remove(city.key);
+                    if (city.next != null) {
+                        city.next.cancel(false);
+                    }
+                    logger.log(Level.FINE, "Stopped refreshing weather for " + city.name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param executor Runs the checks; observers are called on its threads
+     * @param clock Current time in epoch milliseconds
+     * @param jitter Random delay in [0, bound) milliseconds for a given bound
+     * @param cached Gets the current (possibly cached) weather of a city
+     * @param refresh Fetches a city's weather from the API, replacing the cached entry
+     */
+    WeatherRefreshScheduler(ScheduledExecutorService executor, LongSupplier clock, LongUnaryOperator jitter,
+                            Function<String, Weather> cached, Function<String, Weather> refresh) {
+        this.executor = executor;
+        this.clock = clock;
+        this.jitter = jitter;
+        this.cached = cached;
+        this.refresh = refresh;
+    }
+
+    /**
+     * Gets the shared scheduler, reading its timing from config (and following later edits).
+     *
+     * @return The process-wide WeatherRefreshScheduler
+     */
+    public static synchronized WeatherRefreshScheduler getInstance() {
+        if (instance == null) {
+            ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, r -> {
+                Thread thread = new Thread(r, "weather-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            instance = new WeatherRefreshScheduler(executor, System::currentTimeMillis,
+                    bound -> bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound),
+                    Weather::fetchWeatherForCity, Weather::refreshWeatherForCity);
+            WeatherRefreshScheduler scheduler = instance;
+            scheduler.applyConfig(ConfigManager.getConfig());
+            ConfigManager.addListener((previous, current) -> scheduler.applyConfig(current));
+        }
+        return instance;
+    }
+
+    private void applyConfig(ConfigSnapshot config) {
+        updateIntervalMillis = Math.max(60, config.getLong("weatherUpdateIntervalSeconds",
+                DEFAULT_UPDATE_INTERVAL_MILLIS / 1000)) * 1000L;
+        jitterMillis = Math.max(0, config.getLong("weatherRefreshJitterSeconds",
+                DEFAULT_JITTER_MILLIS / 1000)) * 1000L;
+    }
+
+    /**
+     * Starts keeping a city's weather current for a view.
+     *
+     * @param city City name as used in the OpenWeather query
+     * @param onRefresh Called (on a scheduler thread) after a newer observation is in the WeatherCache,
+     *                  e.g. WeatherService::refreshAllData
+     * @return The observation; close it when the view no longer shows the city
+     */
+    public synchronized Observation observe(String city, Runnable onRefresh) {
+        String key = city.trim().toLowerCase(Locale.ROOT);
+        City state = cities.get(key);
+        if (state == null) {
+            state = new City(key, city);
+            cities.put(key, state);
+            // The first check reads the cached observation and only decides when to fetch
+            City first = state;
+            state.next = executor.schedule(() -> check(first, false), 0, TimeUnit.MILLISECONDS);
+        }
+        state.observers.add(onRefresh);
+        return new Observation(state, onRefresh);
+    }
+
+    private void check(City city, boolean fetch) {
+        long delay;
+        try {
+            // Views showing the city already have data, so the fetch and their refreshes yield to view loads
+            delay = ApiBudget.callWith(ApiBudget.Priority.BACKGROUND, () -> nextDelay(city,
+                    fetch ? refresh.apply(city.name) : cached.apply(city.name), fetch));
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Weather refresh for " + city.name + " failed", e);
+            delay = updateIntervalMillis;
+        }
+
+        synchronized (this) {
+            // Not rescheduled once the last observer has gone
+            if (cities.get(city.key) == city) {
+                city.next = executor.schedule(() -> check(city, true), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Handles the result of a check and works out when to check the city again.
+     *
+     * @return Delay until the next fetch, in milliseconds
+     */
+    private long nextDelay(City city, Weather weather, boolean fetched) {
+        long interval = updateIntervalMillis;
+        if (weather == null || weather.isEmpty()) {
+            // API down or key missing: the cache keeps serving the last observation meanwhile
+            return interval + jitter.applyAsLong(jitterMillis + 1);
+        }
+
+        long observation = weather.getTime();
+        if (fetched && observation <= city.lastObservation) {
+            // The provider has not published the observation yet
+            unchanged.incrementAndGet();
+            long retry = city.retryMillis;
+            city.retryMillis = Math.min(retry * 2, interval);
+            return retry + jitter.applyAsLong(jitterMillis + 1);
+        }
+
+        city.lastObservation = observation;
+        city.retryMillis = MIN_RETRY_MILLIS;
+        if (fetched) {
+            refreshes.incrementAndGet();
+            notifyObservers(city);
+        }
+
+        long due = observation * 1000L + interval;
+        return Math.max(0, due - clock.getAsLong()) + jitter.applyAsLong(jitterMillis + 1);
+    }
+
+    private void notifyObservers(City city) {
+        for (Runnable observer : city.observers) {
+            try {
+                observer.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Weather refresh observer for " + city.name + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return Names of the cities currently being kept current
+     */
+    public synchronized Set<String> getObservedCities() {
+        Set<String> names = new HashSet<>();
+        for (City city : cities.values()) {
+            names.add(city.name);
+        }
+        return names;
+    }
+
+    /**
+     * @return How many new observations were fetched and passed to observers
+     */
+    public long getRefreshes() { return refreshes.get(); }
+
+    /**
+     * @return How many fetches found the provider had not published a newer observation yet
+     */
+    public long getUnchanged() { return unchanged.get(); }
+
+    @Override
+    public synchronized String toString() {
+        return "WeatherRefreshScheduler: " + cities.size() + " cities, " + refreshes.get() + " refreshes, "
+                + unchanged.get() + " unchanged";
+    }
+}
@@ -1,7 +1,15 @@
 package com.weatherboys.weatherguard.Weather;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,20 +24,31 @@ import java.util.logging.Logger;
  * - Single entry point for all weather operations
  * - Hides the complexity of coordinating multiple subsystem classes
  * - Makes controller code cleaner and easier to maintain
+ *
+ * Thread safety: the current weather, forecast and map are published together as one immutable
+ * WeatherSnapshot through an AtomicReference. Refreshes (from any thread) build a new snapshot and
+ * swap it in without locking; readers call getSnapshot() and listeners are told about each swap.
  */
 public class WeatherService {
 
     private static final Logger logger = Logger.getLogger(WeatherService.class.getName());
 
-    // Private references to subsystem components
-    private Weather weather;
-    private Forecast forecast;
-    private StaticMap staticMap;
+    // Fetches mostly wait on I/O; idle threads are reclaimed after a minute
+    private static final ExecutorService FETCH_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "weather-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Weather, forecast and map, replaced as a whole on every change
+    private final AtomicReference<WeatherSnapshot> snapshot = new AtomicReference<>();
+    private final List<Consumer<WeatherSnapshot>> listeners = new CopyOnWriteArrayList<>();
 
     // Configuration
-    private String apiKey;
-    private String city;
-    private boolean useFahrenheit;
+    private final String apiKey;
+    private volatile String city;
+    private volatile boolean useFahrenheit;
+    private volatile List<String> mapLayers = StaticMap.DEFAULT_LAYERS;
 
     /**
      * Constructor for WeatherService
@@ -38,6 +57,18 @@ public class WeatherService {
      * @param city The city name to fetch weather data for
      */
     public WeatherService(String apiKey, String city) {
+        this(apiKey, city, true);
+    }
+
+    /**
+     * Constructor for WeatherService that can leave the first fetch to the caller
+     *
+     * @param apiKey The OpenWeatherMap API key
+     * @param city The city name to fetch weather data for
+     * @param refresh Whether to fetch everything now; pass false to add listeners first and call
+     *                refreshAllData() on a worker thread, so a UI never waits on the API
+     */
+    public WeatherService(String apiKey, String city, boolean refresh) {
         if (apiKey == null || apiKey.trim().isEmpty()) {
             throw new IllegalArgumentException("API key cannot be null or empty");
         }
@@ -48,9 +79,12 @@ public class WeatherService {
         this.apiKey = apiKey;
         this.city = city;
         this.useFahrenheit = true; // Default to Fahrenheit
+        this.snapshot.set(WeatherSnapshot.empty(city));
 
         // Initialize all weather data on construction
-        refreshAllData();
+        if (refresh) {
+            refreshAllData();
+        }
     }
 
     /**
@@ -59,10 +93,14 @@ public class WeatherService {
      * @return Weather object containing current weather information
      */
     public Weather getCurrentWeatherData() {
-        if (weather == null || weather.isEmpty()) {
-            logger.log(Level.WARNING, "Weather data is empty, attempting to refresh");
-            weather = Weather.fetchWeatherForCity(city);
+        WeatherSnapshot current = snapshot.get();
+        if (current.hasWeather()) {
+            return current.getWeather();
         }
+        logger.log(Level.WARNING, "Weather data is empty, attempting to refresh");
+        Weather weather = Weather.fetchWeatherForCity(current.getCity());
+        long now = System.currentTimeMillis();
+        publish(current.getCity(), s -> s.withWeather(weather, now));
         return weather;
     }
 
@@ -72,42 +110,135 @@ public class WeatherService {
      * @return Forecast object containing 5-day forecast data
      */
     public Forecast getFiveDayForecast() {
-        if (forecast == null || forecast.isEmpty()) {
-            logger.log(Level.WARNING, "Forecast data is empty, attempting to refresh");
-            // Forecast needs lat/lon from current weather
-            if (weather == null || weather.isEmpty()) {
-                weather = Weather.fetchWeatherForCity(city);
-            }
-            if (weather != null && !weather.isEmpty()) {
-                forecast = Forecast.fetchForecastForLocation(weather.getLat(), weather.getLon());
-            }
+        WeatherSnapshot current = snapshot.get();
+        if (current.hasForecast()) {
+            return current.getForecast();
+        }
+        logger.log(Level.WARNING, "Forecast data is empty, attempting to refresh");
+        // Forecast needs lat/lon, from the geocode cache or from current weather
+        double[] coordinates = resolveCoordinates();
+        if (coordinates == null) {
+            return null;
         }
+        Forecast forecast = Forecast.fetchForecastForLocation(coordinates[0], coordinates[1]);
+        long now = System.currentTimeMillis();
+        publish(current.getCity(), s -> s.withForecast(forecast, now));
         return forecast;
     }
 
     /**
-     * Get weather map for the city location
+     * Get weather map for the city location showing a single weather layer
+     * Only that layer's overlay is fetched; other layers already loaded stay cached in the map
      *
      * @param layer The weather layer to display (e.g., "temp_new", "precipitation_new", "clouds_new")
-     * @return StaticMap object containing the weather map image
+     * @return StaticMap object whose image shows the layer over the base map
      */
     public StaticMap getWeatherMap(String layer) {
-        if (staticMap == null || staticMap.isEmpty()) {
-            logger.log(Level.WARNING, "Static map is empty, attempting to refresh");
-            // StaticMap needs lat/lon from current weather
-            if (weather == null || weather.isEmpty()) {
-                weather = Weather.fetchWeatherForCity(city);
+        StaticMap map = loadWeatherMap();
+        return map == null ? null : map.withLayers(List.of(layer));
+    }
+
+    /**
+     * Get weather map for the city location showing the selected layers (see setMapLayers)
+     *
+     * @return StaticMap object whose image shows the selected layers over the base map
+     */
+    public StaticMap getWeatherMap() {
+        StaticMap map = loadWeatherMap();
+        return map == null ? null : map.withLayers(mapLayers);
+    }
+
+    private StaticMap loadWeatherMap() {
+        WeatherSnapshot current = snapshot.get();
+        if (current.hasMap()) {
+            return current.getMap();
+        }
+        logger.log(Level.WARNING, "Static map is empty, attempting to refresh");
+        // StaticMap needs lat/lon, from the geocode cache or from current weather
+        double[] coordinates = resolveCoordinates();
+        if (coordinates == null) {
+            return null;
+        }
+        StaticMap map = StaticMap.fetchMapForLocation(coordinates[0], coordinates[1]);
+        long now = System.currentTimeMillis();
+        publish(current.getCity(), s -> s.withMap(map, now));
+        return map;
+    }
+
+    /**
+     * Finds the city's coordinates, preferring the geocode cache over a current-weather call
+     *
+     * @return {lat, lon}, or null if the city cannot be resolved
+     */
+    private double[] resolveCoordinates() {
+        double[] coordinates = GeocodeCache.getInstance().lookup(city);
+        if (coordinates != null) {
+            return coordinates;
+        }
+        Weather weather = getCurrentWeatherData();
+        if (weather != null && !weather.isEmpty()) {
+            return new double[] {weather.getLat(), weather.getLon()};
+        }
+        return null;
+    }
+
+    /**
+     * Gets everything currently known about the city, without any fetch or lock
+     *
+     * @return The latest published snapshot
+     */
+    public WeatherSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Registers a callback for every newly published snapshot
+     * Listeners run on the thread that published it (often a fetch thread), so UI code
+     * should hand the snapshot to its own thread (e.g. Platform.runLater)
+     *
+     * @param listener Receives the new snapshot
+     */
+    public void addListener(Consumer<WeatherSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<WeatherSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Swaps in a new snapshot built from the current one, retrying if another thread swapped first
+     * Updates for a city other than the current one (after setCity) are dropped
+     */
+    private void publish(String forCity, UnaryOperator<WeatherSnapshot> update) {
+        WeatherSnapshot previous;
+        WeatherSnapshot next;
+        do {
+            previous = snapshot.get();
+            if (!previous.getCity().equals(forCity)) {
+                return;
             }
-            if (weather != null && !weather.isEmpty()) {
-                staticMap = StaticMap.fetchMapForLocation(weather.getLat(), weather.getLon());
+            next = update.apply(previous);
+        } while (!snapshot.compareAndSet(previous, next));
+
+        if (next != previous) {
+            notifyListeners(next);
+        }
+    }
+
+    private void notifyListeners(WeatherSnapshot published) {
+        for (Consumer<WeatherSnapshot> listener : listeners) {
+            try {
+                listener.accept(published);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Weather listener failed", e);
             }
         }
-        return staticMap;
     }
 
     /**
      * Get all weather information in one call
-     * This is the main facade method that simplifies access to all weather data
+     * Fetches any part still missing; prefer getSnapshot() for typed, lock-free access
      *
      * @return Map containing "weather", "forecast", and "map" keys with their respective objects
      */
@@ -117,7 +248,7 @@ public class WeatherService {
         // Get all data through the facade methods
         Weather w = getCurrentWeatherData();
         Forecast f = getFiveDayForecast();
-        StaticMap m = getWeatherMap("clouds_new");
+        StaticMap m = getWeatherMap();
 
         allData.put("weather", w);
         allData.put("forecast", f);
@@ -129,23 +260,57 @@ public class WeatherService {
     }
 
     /**
-     * Refresh all weather data by fetching fresh data from the API
-     * Useful when you want to update the weather information
+     * Refresh all weather data through the shared WeatherCache
+     * Data still within its TTL is reused without an HTTP call; expired data is
+     * returned immediately while the cache fetches a replacement in the background
+     *
+     * When the city's coordinates are in the GeocodeCache, current weather, forecast and map
+     * are all requested at once. On a cold cache, current weather is fetched first to resolve
+     * the coordinates, then the forecast and the map run in parallel
+     *
+     * The results are published as one new snapshot; a part that failed to fetch keeps its previous value
      */
     public void refreshAllData() {
         // logger.log(Level.INFO, "Refreshing all weather data for city: " + city);
+        long start = System.nanoTime();
+        String city = this.city;
+        // The fetch threads draw on the API budget in the caller's lane (view, prewarm or background)
+        ApiBudget.Priority priority = ApiBudget.currentPriority();
 
-        // Fetch fresh weather data
-        weather = Weather.fetchWeatherForCity(city);
+        double[] coordinates = GeocodeCache.getInstance().lookup(city);
+        CompletableFuture<Weather> weatherFuture =
+                CompletableFuture.supplyAsync(() -> ApiBudget.callWith(priority,
+                        () -> Weather.fetchWeatherForCity(city)), FETCH_EXECUTOR);
 
-        // Only fetch forecast and map if we have valid weather data with coordinates
-        if (weather != null && !weather.isEmpty()) {
-            forecast = Forecast.fetchForecastForLocation(weather.getLat(), weather.getLon());
-            staticMap = StaticMap.fetchMapForLocation(weather.getLat(), weather.getLon());
-            // logger.log(Level.INFO, "Successfully refreshed all weather data");
-        } else {
+        if (coordinates == null) {
+            // Geocode hop: the coordinates come from the current weather response
+            Weather weather = weatherFuture.join();
+            if (weather == null || weather.isEmpty()) {
+                logger.log(Level.SEVERE, "Failed to refresh weather data - Weather object is empty");
+                return;
+            }
+            coordinates = new double[] {weather.getLat(), weather.getLon()};
+        }
+
+        double lat = coordinates[0];
+        double lon = coordinates[1];
+        CompletableFuture<Forecast> forecastFuture =
+                CompletableFuture.supplyAsync(() -> ApiBudget.callWith(priority,
+                        () -> Forecast.fetchForecastForLocation(lat, lon)), FETCH_EXECUTOR);
+        CompletableFuture<StaticMap> mapFuture =
+                CompletableFuture.supplyAsync(() -> ApiBudget.callWith(priority,
+                        () -> StaticMap.fetchMapForLocation(lat, lon)), FETCH_EXECUTOR);
+        Weather weather = weatherFuture.join();
+        Forecast forecast = forecastFuture.join();
+        StaticMap map = mapFuture.join();
+        long now = System.currentTimeMillis();
+        publish(city, s -> s.withWeather(weather, now).withForecast(forecast, now).withMap(map, now));
+
+        if (weather == null || weather.isEmpty()) {
             logger.log(Level.SEVERE, "Failed to refresh weather data - Weather object is empty");
         }
+        logger.log(Level.FINE, String.format("Refreshed weather data for %s in %d ms",
+                city, (System.nanoTime() - start) / 1_000_000));
     }
 
     /**
@@ -158,6 +323,10 @@ public class WeatherService {
             throw new IllegalArgumentException("City cannot be null or empty");
         }
         this.city = newCity;
+        // Readers see an empty snapshot for the new city, never a mix of the two cities
+        WeatherSnapshot empty = WeatherSnapshot.empty(newCity);
+        snapshot.set(empty);
+        notifyListeners(empty);
         refreshAllData();
     }
 
@@ -170,6 +339,20 @@ public class WeatherService {
         return apiKey;
     }
 
+    public List<String> getMapLayers() {
+        return mapLayers;
+    }
+
+    /**
+     * Set which weather layers getWeatherMap() shows
+     * Toggling only re-blends overlays already fetched; a layer is fetched the first time it is shown
+     *
+     * @param layers Layer names, drawn bottom to top
+     */
+    public void setMapLayers(List<String> layers) {
+        this.mapLayers = List.copyOf(layers);
+    }
+
     public boolean isUsingFahrenheit() {
         return useFahrenheit;
     }
@@ -204,8 +387,6 @@ public class WeatherService {
      * @return true if all subsystem components have valid data
      */
     public boolean hasValidData() {
-        return weather != null && !weather.isEmpty() &&
-               forecast != null && !forecast.isEmpty() &&
-               staticMap != null && !staticMap.isEmpty();
+        return snapshot.get().isComplete();
     }
 }
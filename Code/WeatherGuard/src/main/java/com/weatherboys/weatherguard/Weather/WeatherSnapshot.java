@@ -0,0 +1,95 @@
+package com.weatherboys.weatherguard.Weather;
+
+/**
+ * WeatherSnapshot - Immutable view of everything WeatherService knows about one city
+ *
+ * WeatherService publishes a new snapshot whenever any part changes, so a reader always sees
+ * weather, forecast and map from the same publication and never needs a lock. The Weather,
+ * Forecast and StaticMap objects are shared and must be treated as read-only.
+ * Fetch times are epoch milliseconds, 0 when that part has never been fetched.
+ */
+public final class WeatherSnapshot {
+
+    private final String city;
+    private final Weather weather;
+    private final long weatherFetchedAt;
+    private final Forecast forecast;
+    private final long forecastFetchedAt;
+    private final StaticMap map;
+    private final long mapFetchedAt;
+
+    WeatherSnapshot(String city, Weather weather, long weatherFetchedAt, Forecast forecast, long forecastFetchedAt,
+                    StaticMap map, long mapFetchedAt) {
+        this.city = city;
+        this.weather = weather;
+        this.weatherFetchedAt = weatherFetchedAt;
+        this.forecast = forecast;
+        this.forecastFetchedAt = forecastFetchedAt;
+        this.map = map;
+        this.mapFetchedAt = mapFetchedAt;
+    }
+
+    /**
+     * @param city City name
+     * @return A snapshot holding nothing yet for the city
+     */
+    static WeatherSnapshot empty(String city) {
+        return new WeatherSnapshot(city, null, 0, null, 0, null, 0);
+    }
+
+    /**
+     * @return A copy with new current weather, or this snapshot if weather is empty
+     */
+    WeatherSnapshot withWeather(Weather weather, long fetchedAt) {
+        if (weather == null || weather.isEmpty()) {
+            return this;
+        }
+        return new WeatherSnapshot(city, weather, fetchedAt, forecast, forecastFetchedAt, map, mapFetchedAt);
+    }
+
+    /**
+     * @return A copy with a new forecast, or this snapshot if forecast is empty
+     */
+    WeatherSnapshot withForecast(Forecast forecast, long fetchedAt) {
+        if (forecast == null || forecast.isEmpty()) {
+            return this;
+        }
+        return new WeatherSnapshot(city, weather, weatherFetchedAt, forecast, fetchedAt, map, mapFetchedAt);
+    }
+
+    /**
+     * @return A copy with a new map, or this snapshot if map is empty
+     */
+    WeatherSnapshot withMap(StaticMap map, long fetchedAt) {
+        if (map == null || map.isEmpty()) {
+            return this;
+        }
+        return new WeatherSnapshot(city, weather, weatherFetchedAt, forecast, forecastFetchedAt, map, fetchedAt);
+    }
+
+    public boolean hasWeather() { return weather != null; }
+    public boolean hasForecast() { return forecast != null; }
+    public boolean hasMap() { return map != null; }
+
+    /**
+     * @return true if weather, forecast and map are all present
+     */
+    public boolean isComplete() {
+        return hasWeather() && hasForecast() && hasMap();
+    }
+
+    // Getters
+    public String getCity() { return city; }
+    public Weather getWeather() { return weather; }
+    public long getWeatherFetchedAt() { return weatherFetchedAt; }
+    public Forecast getForecast() { return forecast; }
+    public long getForecastFetchedAt() { return forecastFetchedAt; }
+    public StaticMap getMap() { return map; }
+    public long getMapFetchedAt() { return mapFetchedAt; }
+
+    @Override
+    public String toString() {
+        return "WeatherSnapshot: " + city + " (weather " + weatherFetchedAt + ", forecast " + forecastFetchedAt
+                + ", map " + mapFetchedAt + ")";
+    }
+}
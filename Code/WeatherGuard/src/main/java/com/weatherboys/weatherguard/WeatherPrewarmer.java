@@ -0,0 +1,282 @@
+package com.weatherboys.weatherguard;
+
+import com.weatherboys.model.ClassInfo;
+import com.weatherboys.weatherguard.Weather.ApiBudget;
+import com.weatherboys.weatherguard.Weather.ConfigManager;
+import com.weatherboys.weatherguard.Weather.ConfigSnapshot;
+import com.weatherboys.weatherguard.Weather.GeocodeCache;
+import com.weatherboys.weatherguard.Weather.WeatherService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WeatherPrewarmer fills the weather caches (WeatherCache, GeocodeCache and TileCache) for the
+ * cities of active classes in the background, so opening a class reads its weather, forecast and
+ * base map from memory instead of waiting on the API. Weather overlay tiles are left to the view:
+ * they expire as often as the prewarm runs, so warming them would spend most of the OpenWeather
+ * budget on layers nobody looks at.
+ *
+ * Cities shared by several classes are warmed once, in order of the class predicted to meet soonest.
+ * Classes carry no timetable, so a class is expected again at the time of day its latest session was
+ * opened; classes that never held a session come last. The first run (at startup) warms every city;
+ * later runs only warm cities with a class due within the lookahead, so the API quota goes to the
+ * classes about to open.
+ *
+ * Config keys (config.properties, read when started): weatherPrewarmEnabled,
+ * weatherPrewarmIntervalMinutes, weatherPrewarmLookaheadMinutes.
+ */
+public class WeatherPrewarmer {
+
+    private static final Logger logger = Logger.getLogger(WeatherPrewarmer.class.getName());
+
+    public static final long DEFAULT_INTERVAL_MINUTES = 10;
+    public static final long DEFAULT_LOOKAHEAD_MINUTES = 120;
+
+    // A class opened a little earlier today may still be reopened by a late teacher
+    static final long GRACE_MINUTES = 15;
+
+    // Meeting time of a class that never held a session
+    static final long UNKNOWN = Long.MAX_VALUE;
+
+    private static WeatherPrewarmer instance;
+
+    private final ScheduledExecutorService executor;
+    private final AtomicLong warmedCities = new AtomicLong();
+
+    // Guarded by this
+    private ScheduledFuture<?> task;
+
+    // Only touched by the prewarm thread
+    private boolean warmedAll;
+
+    /**
+     * A city to warm.
+     *
+     * @param name City name as stored with the class
+     * @param lat Latitude, NaN if unknown
+     * @param lon Longitude, NaN if unknown
+     * @param minutesUntilMeeting Minutes until its soonest class is expected, UNKNOWN if never held
+     */
+    record City(String name, double lat, double lon, long minutesUntilMeeting) {
+    }
+
+    private WeatherPrewarmer() {
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-prewarm");
+            thread.setDaemon(true);
+            // Warming must never slow down the views
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * @return The shared prewarmer
+     */
+    public static synchronized WeatherPrewarmer getInstance() {
+        if (instance == null) {
+            instance = new WeatherPrewarmer();
+        }
+        return instance;
+    }
+
+    /**
+     * Warms every city now, then the cities of upcoming classes periodically. Does nothing if
+     * already started or disabled in config.
+     */
+    public synchronized void start() {
+        ConfigSnapshot config = ConfigManager.getConfig();
+        if (task != null || !config.getBoolean("weatherPrewarmEnabled", true)) {
+            return;
+        }
+        long interval = Math.max(1, config.getLong("weatherPrewarmIntervalMinutes", DEFAULT_INTERVAL_MINUTES));
+        task = executor.scheduleWithFixedDelay(this::runSafely, 0, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the periodic warming. A city being warmed finishes first.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Resolves a city's coordinates and OpenWeather ID on the prewarm thread, in the PREFETCH lane,
+     * e.g. for a class whose roster was imported before its city was in the GeocodeCache.
+     *
+     * @param city City name as stored with the class
+     * @param onResolved Receives {lat, lon} and the city ID (0 if unknown); not called if the city
+     *                   cannot be resolved
+     */
+    public void resolveCity(String city, BiConsumer<double[], Long> onResolved) {
+        if (city == null || city.trim().isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                ApiBudget.runWith(ApiBudget.Priority.PREFETCH, () -> {
+                    GeocodeCache geocode = GeocodeCache.getInstance();
+                    double[] coordinates = geocode.resolve(city);
+                    if (coordinates != null) {
+                        onResolved.accept(coordinates, geocode.resolveId(city));
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Cannot resolve class city: " + city, e);
+            }
+        });
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            logger.log(Level.WARNING, "Weather prewarm failed", e);
+        }
+    }
+
+    private void run() {
+        ConfigSnapshot config = ConfigManager.getConfig();
+        String apiKey = config.get("apiKey");
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            logger.log(Level.WARNING, "API key is missing; weather prewarm skipped");
+            return;
+        }
+        long lookahead = config.getLong("weatherPrewarmLookaheadMinutes", DEFAULT_LOOKAHEAD_MINUTES);
+
+        AttendanceRepository repository = RepositoryFactory.getRepository();
+        List<ClassInfo> classes = repository.getActiveClassList();
+        // One query for every class instead of one per class
+        Map<String, String> openedAt = repository.getLatestOpenedAt(
+                classes.stream().map(ClassInfo::getClassId).toList());
+        List<City> cities = plan(classes, openedAt::get, LocalDateTime.now());
+
+        long start = System.nanoTime();
+        int count = 0;
+        for (City city : cities) {
+            // Cities are in meeting order, so the rest are further away still
+            if (warmedAll && city.minutesUntilMeeting() > lookahead) {
+                break;
+            }
+            // Cache filling waits behind any view the user is opening
+            if (ApiBudget.callWith(ApiBudget.Priority.PREFETCH, () -> warm(apiKey, city))) {
+                count++;
+            }
+        }
+        warmedAll = true;
+        logger.log(Level.FINE, String.format("Prewarmed weather for %d of %d cities in %d ms",
+                count, cities.size(), (System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Warms one city. Failures are logged and swallowed so the rest of the run still happens.
+     *
+     * @return true if the city was warmed
+     */
+    private boolean warm(String apiKey, City city) {
+        if (!Double.isNaN(city.lat()) && !Double.isNaN(city.lon())) {
+            // Lets the forecast and map start without waiting for the current weather
+            GeocodeCache.getInstance().put(city.name(), city.lat(), city.lon());
+        }
+        try {
+            // The facade fetches weather, forecast and base map through the caches; no overlays
+            new WeatherService(apiKey, city.name());
+            warmedCities.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            // e.g. an unknown city, or a CompletionException from a failed fetch
+            logger.log(Level.WARNING, "Cannot prewarm weather for class city: " + city.name(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Lists the distinct cities of the classes, soonest meeting first.
+     *
+     * @param classes Active classes
+     * @param lastOpenedAt Gets the openedAt time of a class's latest session, or null if none
+     * @param now Current local time
+     * @return One City per distinct city name (ignoring case), ordered by minutesUntilMeeting
+     */
+    static List<City> plan(List<ClassInfo> classes, Function<String, String> lastOpenedAt, LocalDateTime now) {
+        Map<String, City> cities = new LinkedHashMap<>();
+        for (ClassInfo classInfo : classes) {
+            String name = classInfo.getCity();
+            if (name == null || name.trim().isEmpty()) {
+                continue;
+            }
+            long minutes = minutesUntilMeeting(lastOpenedAt.apply(classInfo.getClassId()), now);
+            double lat = classInfo.hasCoordinates() ? classInfo.getLatitude() : Double.NaN;
+            double lon = classInfo.hasCoordinates() ? classInfo.getLongitude() : Double.NaN;
+            City city = new City(name.trim(), lat, lon, minutes);
+
+            String key = city.name().toLowerCase(Locale.ROOT);
+            City known = cities.get(key);
+            if (known == null) {
+                cities.put(key, city);
+            } else if (minutes < known.minutesUntilMeeting() || (Double.isNaN(known.lat()) && !Double.isNaN(lat))) {
+                // Keep the soonest meeting, and any coordinates either class has
+                cities.put(key, new City(known.name(),
+                        Double.isNaN(known.lat()) ? lat : known.lat(),
+                        Double.isNaN(known.lon()) ? lon : known.lon(),
+                        Math.min(minutes, known.minutesUntilMeeting())));
+            }
+        }
+        List<City> ordered = new ArrayList<>(cities.values());
+        ordered.sort(Comparator.comparingLong(City::minutesUntilMeeting));
+        return ordered;
+    }
+
+    /**
+     * Predicts when a class meets next: at the time of day its latest session was opened,
+     * today if that is still ahead (or within GRACE_MINUTES past), otherwise tomorrow.
+     *
+     * @param openedAt ISO local date-time the latest session was opened, or null
+     * @param now Current local time
+     * @return Minutes until the predicted meeting, or UNKNOWN
+     */
+    static long minutesUntilMeeting(String openedAt, LocalDateTime now) {
+        if (openedAt == null) {
+            return UNKNOWN;
+        }
+        LocalDateTime last;
+        try {
+            last = LocalDateTime.parse(openedAt);
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+        LocalDateTime next = now.toLocalDate().atTime(last.toLocalTime());
+        if (next.isBefore(now.minusMinutes(GRACE_MINUTES))) {
+            next = next.plusDays(1);
+        }
+        return Math.max(0, Duration.between(now, next).toMinutes());
+    }
+
+    /**
+     * @return How many cities have been warmed since startup
+     */
+    public long getWarmedCities() {
+        return warmedCities.get();
+    }
+}
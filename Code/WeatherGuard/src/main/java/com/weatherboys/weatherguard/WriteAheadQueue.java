@@ -0,0 +1,268 @@
+package com.weatherboys.weatherguard;
+
+import org.bson.Document;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WriteAheadQueue makes database writes survive a network outage.
+ *
+ * Each write is appended to a local file as one JSON line and fsynced before it is
+ * acknowledged. Concurrent appenders share a single fsync (group commit), so a burst
+ * of check-ins costs one disk flush rather than one per write. A background worker
+ * drains queued writes to MongoDB in batches, retrying with exponential backoff while
+ * the database is unreachable. The file is truncated once everything has been drained,
+ * and replayed on startup, so drained-but-not-truncated writes must be idempotent.
+ */
+public class WriteAheadQueue implements AutoCloseable {
+
+    /**
+     * Applies a batch of queued writes to the database.
+     * Throwing leaves the whole batch queued for a later retry.
+     */
+    public interface Drainer {
+        void apply(List<Document> writes) throws Exception;
+    }
+
+    private static final Logger logger = Logger.getLogger(WriteAheadQueue.class.getName());
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final Path file;
+    private final Drainer drainer;
+    private final int batchSize;
+    private final FileChannel channel;
+    private final Thread worker;
+
+    // Queued writes in append order; guarded by "this"
+    private final Deque<Document> pending = new ArrayDeque<>();
+
+    // Group commit bookkeeping: appends are numbered, syncedCount is the highest number on disk
+    private final Object syncLock = new Object();
+    private long writtenCount = 0;
+    private long syncedCount = 0;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Opens (or creates) the queue file and replays any writes left from a previous run.
+     * Call start() to begin draining.
+     *
+     * @param file Path of the append-only queue file
+     * @param drainer Applies batches of writes to the database
+     * @param batchSize Maximum writes handed to the drainer at once
+     * @throws IOException if the file cannot be opened or read
+     */
+    public WriteAheadQueue(Path file, Drainer drainer, int batchSize) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.file = file;
+        this.drainer = drainer;
+        this.batchSize = batchSize;
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        replay();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+
+        this.worker = new Thread(this::drainLoop, "write-ahead-queue");
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Loads writes left in the file by a previous run. A torn last line (crash mid-append)
+     * was never acknowledged, so it is skipped.
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    pending.add(Document.parse(line));
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Skipping unreadable queued write in " + file);
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.log(Level.INFO, "Replaying " + pending.size() + " queued writes from " + file);
+        }
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Appends a write and returns once it is durable on local disk.
+     *
+     * @param write The write to queue
+     * @throws IOException if the write could not be persisted locally
+     */
+    public void append(Document write) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((write.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+        long ticket;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Write queue is closed");
+            }
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            ticket = ++writtenCount;
+            pending.add(write);
+            notifyAll();
+        }
+        awaitDurable(ticket);
+    }
+
+    /**
+     * Blocks until the append with the given number has been fsynced.
+     * Whoever holds syncLock forces everything written so far, so waiting appenders
+     * usually find their write already covered.
+     */
+    private void awaitDurable(long ticket) throws IOException {
+        synchronized (syncLock) {
+            if (syncedCount >= ticket) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = writtenCount;
+            }
+            channel.force(false);
+            syncedCount = target;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the writes not yet applied to the database.
+     *
+     * @return Queued writes in append order
+     */
+    public synchronized List<Document> getPending() {
+        return new ArrayList<>(pending);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void drainLoop() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!closed) {
+            List<Document> batch;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                for (Document write : pending) {
+                    if (batch.size() == batchSize) {
+                        break;
+                    }
+                    batch.add(write);
+                }
+            }
+
+            if (drainBatch(batch)) {
+                backoff = INITIAL_BACKOFF_MILLIS;
+            } else {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Applies one batch and removes it from the queue on success.
+     *
+     * @return true if the batch was applied
+     */
+    boolean drainBatch(List<Document> batch) {
+        try {
+            drainer.apply(batch);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to drain " + batch.size() + " queued writes, will retry", e);
+            return false;
+        }
+
+        synchronized (this) {
+            // Only this worker removes entries, so the batch is still at the head
+            for (int i = 0; i < batch.size(); i++) {
+                pending.pollFirst();
+            }
+            if (pending.isEmpty()) {
+                try {
+                    channel.truncate(0);
+                    channel.force(false);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to truncate write queue file: " + file, e);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the background worker and closes the file. Writes still queued stay
+     * in the file and are replayed on the next start.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close write queue file: " + file, e);
+            }
+        }
+        if (size() > 0) {
+            logger.log(Level.WARNING, size() + " writes still queued in " + file);
+        }
+    }
+}
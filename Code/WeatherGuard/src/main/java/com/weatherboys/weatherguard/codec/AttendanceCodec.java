@@ -0,0 +1,51 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.weatherboys.model.Attendance;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Decodes attendance documents straight into {@link Attendance} transfer objects.
+ */
+public class AttendanceCodec implements Codec<Attendance> {
+
+    @Override
+    public Attendance decode(BsonReader reader, DecoderContext decoderContext) {
+        Attendance attendance = new Attendance();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "studentId" -> attendance.setStudentId(BsonValues.readString(reader));
+                case "studentName" -> attendance.setStudentName(BsonValues.readString(reader));
+                case "checkInTime" -> attendance.setCheckInTime(BsonValues.readDateTime(reader));
+                case "sessionId" -> attendance.setSessionId(BsonValues.readString(reader));
+                case "classId" -> attendance.setClassId(BsonValues.readString(reader));
+                case "status" -> attendance.setStatus(BsonValues.readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return attendance;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Attendance attendance, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonValues.writeString(writer, "classId", attendance.getClassId());
+        BsonValues.writeString(writer, "sessionId", attendance.getSessionId());
+        BsonValues.writeString(writer, "studentId", attendance.getStudentId());
+        BsonValues.writeString(writer, "studentName", attendance.getStudentName());
+        BsonValues.writeDateTime(writer, "checkInTime", attendance.getCheckInTime());
+        BsonValues.writeString(writer, "status", attendance.getStatus());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Attendance> getEncoderClass() {
+        return Attendance.class;
+    }
+}
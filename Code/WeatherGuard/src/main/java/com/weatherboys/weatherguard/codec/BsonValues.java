@@ -0,0 +1,140 @@
+package com.weatherboys.weatherguard.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Helpers shared by the model codecs for reading loosely typed field values.
+ * Documents in the database were written by both the desktop app and the
+ * Netlify check-in function, so the same field can arrive in more than one BSON type.
+ */
+final class BsonValues {
+
+    private BsonValues() {
+    }
+
+    static String readString(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case STRING:
+                return reader.readString();
+            case NULL:
+                reader.readNull();
+                return null;
+            case OBJECT_ID:
+                return reader.readObjectId().toHexString();
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    static int readInt(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return (int) reader.readInt64();
+            case DOUBLE:
+                return (int) reader.readDouble();
+            case STRING:
+                try {
+                    return Integer.parseInt(reader.readString().trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            default:
+                reader.skipValue();
+                return 0;
+        }
+    }
+
+    static long readLong(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case INT64:
+                return reader.readInt64();
+            case INT32:
+                return reader.readInt32();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            case STRING:
+                try {
+                    return Long.parseLong(reader.readString().trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            default:
+                reader.skipValue();
+                return 0;
+        }
+    }
+
+    static double readDouble(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                reader.skipValue();
+                return Double.NaN;
+        }
+    }
+
+    static boolean readBoolean(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.BOOLEAN) {
+            return reader.readBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    /**
+     * Reads a timestamp stored either as a BSON date or as an ISO-8601 string
+     * (with or without an offset).
+     */
+    static LocalDateTime readDateTime(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.DATE_TIME) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.readDateTime()), ZoneId.systemDefault());
+        }
+        String text = readString(reader);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeDateTime(BsonWriter writer, String name, LocalDateTime value) {
+        if (value != null) {
+            // Stored as ISO strings to match the documents DatabaseManager has always written
+            writer.writeString(name, value.toString());
+        }
+    }
+}
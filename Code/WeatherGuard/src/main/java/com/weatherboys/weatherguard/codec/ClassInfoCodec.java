@@ -0,0 +1,67 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.weatherboys.model.ClassInfo;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Decodes class documents straight into {@link ClassInfo} transfer objects.
+ * The "active" flag is not part of ClassInfo and is written as true on encode.
+ */
+public class ClassInfoCodec implements Codec<ClassInfo> {
+
+    @Override
+    public ClassInfo decode(BsonReader reader, DecoderContext decoderContext) {
+        ClassInfo classInfo = new ClassInfo();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "classId" -> classInfo.setClassId(BsonValues.readString(reader));
+                case "className" -> classInfo.setClassName(BsonValues.readString(reader));
+                case "semester" -> classInfo.setSemester(BsonValues.readString(reader));
+                case "year" -> classInfo.setYear(BsonValues.readInt(reader));
+                case "professorName" -> classInfo.setProfessorName(BsonValues.readString(reader));
+                case "city" -> classInfo.setCity(BsonValues.readString(reader));
+                case "startDate" -> classInfo.setStartDate(BsonValues.readString(reader));
+                case "endDate" -> classInfo.setEndDate(BsonValues.readString(reader));
+                case "lat" -> classInfo.setLatitude(BsonValues.readDouble(reader));
+                case "lon" -> classInfo.setLongitude(BsonValues.readDouble(reader));
+                case "cityId" -> classInfo.setCityId(BsonValues.readLong(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return classInfo;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, ClassInfo classInfo, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonValues.writeString(writer, "classId", classInfo.getClassId());
+        BsonValues.writeString(writer, "className", classInfo.getClassName());
+        BsonValues.writeString(writer, "semester", classInfo.getSemester());
+        writer.writeInt32("year", classInfo.getYear());
+        BsonValues.writeString(writer, "startDate", classInfo.getStartDate());
+        BsonValues.writeString(writer, "endDate", classInfo.getEndDate());
+        BsonValues.writeString(writer, "professorName", classInfo.getProfessorName());
+        BsonValues.writeString(writer, "city", classInfo.getCity());
+        if (classInfo.hasCoordinates()) {
+            writer.writeDouble("lat", classInfo.getLatitude());
+            writer.writeDouble("lon", classInfo.getLongitude());
+        }
+        if (classInfo.getCityId() > 0) {
+            writer.writeInt64("cityId", classInfo.getCityId());
+        }
+        writer.writeBoolean("active", true);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<ClassInfo> getEncoderClass() {
+        return ClassInfo.class;
+    }
+}
@@ -0,0 +1,29 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Codec registry for the com.weatherboys.model transfer objects.
+ * Falls back to the driver's default registry, so Document collections keep working.
+ */
+public final class ModelCodecs {
+
+    private static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(
+                    new StudentCodec(),
+                    new ClassInfoCodec(),
+                    new AttendanceCodec(),
+                    new SessionCodec()
+            ),
+            MongoClientSettings.getDefaultCodecRegistry()
+    );
+
+    private ModelCodecs() {
+    }
+
+    public static CodecRegistry registry() {
+        return REGISTRY;
+    }
+}
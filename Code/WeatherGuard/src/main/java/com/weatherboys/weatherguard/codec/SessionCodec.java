@@ -0,0 +1,49 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.weatherboys.model.Session;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Decodes session documents straight into {@link Session} transfer objects.
+ */
+public class SessionCodec implements Codec<Session> {
+
+    @Override
+    public Session decode(BsonReader reader, DecoderContext decoderContext) {
+        Session session = new Session();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "classId" -> session.setClassId(BsonValues.readString(reader));
+                case "sessionId" -> session.setSessionId(BsonValues.readString(reader));
+                case "createdAt" -> session.setCreatedAt(BsonValues.readDateTime(reader));
+                case "weatherData" -> session.setWeatherData(BsonValues.readString(reader));
+                case "active" -> session.setActive(BsonValues.readBoolean(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return session;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Session session, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonValues.writeString(writer, "classId", session.getClassId());
+        BsonValues.writeString(writer, "sessionId", session.getSessionId());
+        BsonValues.writeDateTime(writer, "createdAt", session.getCreatedAt());
+        BsonValues.writeString(writer, "weatherData", session.getWeatherData());
+        writer.writeBoolean("active", session.isActive());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Session> getEncoderClass() {
+        return Session.class;
+    }
+}
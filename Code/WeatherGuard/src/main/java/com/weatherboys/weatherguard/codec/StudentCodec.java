@@ -0,0 +1,45 @@
+package com.weatherboys.weatherguard.codec;
+
+import com.weatherboys.model.Student;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Decodes student documents straight into {@link Student} transfer objects.
+ */
+public class StudentCodec implements Codec<Student> {
+
+    @Override
+    public Student decode(BsonReader reader, DecoderContext decoderContext) {
+        Student student = new Student();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "studentId" -> student.setStudentId(BsonValues.readString(reader));
+                case "studentName" -> student.setStudentName(BsonValues.readString(reader));
+                case "classId" -> student.setClassId(BsonValues.readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return student;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Student student, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonValues.writeString(writer, "studentId", student.getStudentId());
+        BsonValues.writeString(writer, "studentName", student.getStudentName());
+        BsonValues.writeString(writer, "classId", student.getClassId());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Student> getEncoderClass() {
+        return Student.class;
+    }
+}
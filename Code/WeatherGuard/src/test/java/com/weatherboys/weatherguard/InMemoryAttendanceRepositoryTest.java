@@ -0,0 +1,259 @@
+package com.weatherboys.weatherguard;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for InMemoryAttendanceRepository - Database-free AttendanceRepository
+ *
+ * Tests cover:
+ * - Roster import and student validation
+ * - One check-in per student per session, including under concurrent writers
+ * - Soft delete of classes
+ * - Reads by student, latest-session queries and session summaries
+ */
+public class InMemoryAttendanceRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryAttendanceRepository repository;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        repository = new InMemoryAttendanceRepository();
+        assertTrue(repository.uploadRosterCsv(writeRoster("BIO101", 3)));
+    }
+
+    /**
+     * Helper method to write a roster file with the given number of students
+     */
+    private String writeRoster(String classId, int students) throws IOException {
+        Path file = tempDir.resolve(classId + "_Roster.csv");
+        try (FileWriter writer = new FileWriter(file.toFile())) {
+            writer.write("ClassName,Biology 101\n");
+            writer.write("ClassID," + classId + "\n");
+            writer.write("Semester,Fall\n");
+            writer.write("Year,2025\n");
+            writer.write("StartDate,2025-08-25\n");
+            writer.write("EndDate,2025-12-12\n");
+            writer.write("ProfessorName,Dr. Smith\n");
+            writer.write("City,Chicago\n");
+            writer.write("\n");
+            writer.write("StudentName,StudentID\n");
+            for (int i = 1; i <= students; i++) {
+                writer.write("Student " + i + ",S" + String.format("%03d", i) + "\n");
+            }
+        }
+        return file.toString();
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Roster import
+     * Testing Input: Roster with three students
+     * Testing Procedure: Import, then validate an enrolled and an unknown student
+     * Expected Result: Class is active, three students listed, only the enrolled one validates
+     */
+    @Test
+    public void testUploadRoster_ValidFile_ClassAndStudentsStored() {
+        assertEquals(1, repository.getActiveClassList().size());
+        assertEquals("Chicago", repository.getClassInfo("BIO101").getString("city"));
+        assertEquals(3, repository.getStudentList("BIO101").size());
+        assertNotNull(repository.validateStudent("S002", "BIO101"));
+        assertNull(repository.validateStudent("S999", "BIO101"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Duplicate check-in
+     * Testing Input: Same student checking in twice
+     * Testing Procedure: Mark attendance twice for one student in one session
+     * Expected Result: First call succeeds, second is rejected, one record stored
+     */
+    @Test
+    public void testMarkAttendance_Duplicate_Rejected() {
+        repository.createSession("BIO101", "20250101_090000", "{}");
+
+        assertTrue(repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1"));
+        assertFalse(repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1"));
+        assertEquals(1, repository.getAttendanceBySession("20250101_090000").size());
+    }
+
+    /**
+     * Test Type: Stress Test
+     * Testing Range: Concurrent check-ins
+     * Testing Input: 8 threads each checking in the same 500 students
+     * Testing Procedure: Run all threads at once and count successful check-ins
+     * Expected Result: Exactly 500 check-ins succeed and the summary counts 500 present
+     */
+    @Test
+    public void testMarkAttendance_ConcurrentWriters_EachStudentOnce() throws Exception {
+        String sessionId = "20250101_090000";
+        repository.createSession("BIO101", sessionId, "{}");
+        AtomicInteger accepted = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (repository.markAttendance("BIO101", sessionId, "S" + i, "Student " + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(500, accepted.get());
+        assertEquals(500, repository.getAttendanceBySession(sessionId).size());
+        assertEquals(500, repository.getSessionSummary(sessionId).getInteger("present", 0));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Soft delete
+     * Testing Input: Imported class BIO101
+     * Testing Procedure: Delete the class twice
+     * Expected Result: Class leaves the active list but keeps its data; second delete returns false
+     */
+    @Test
+    public void testDeleteClass_SoftDelete_DataKept() {
+        assertTrue(repository.deleteClass("BIO101"));
+        assertFalse(repository.deleteClass("BIO101"));
+
+        assertTrue(repository.getActiveClasses().isEmpty());
+        assertEquals(1, repository.getAllClasses().size());
+        assertFalse(repository.getClassInfo("BIO101").getBoolean("active"));
+        assertEquals(3, repository.getStudentsByClass("BIO101").size());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Reads by student
+     * Testing Input: Two check-ins; a poll for one of them and a student who has not checked in
+     * Testing Procedure: Read the session for the missing students
+     * Expected Result: Only the asked-for student's check-in is returned, with its _id
+     */
+    @Test
+    public void testGetAttendanceOf_MissingStudents_ReturnsOnlyTheirs() {
+        String sessionId = "20250101_090000";
+        repository.markAttendance("BIO101", sessionId, "S001", "Student 1");
+        repository.markAttendance("BIO101", sessionId, "S002", "Student 2");
+
+        List<Document> found = repository.getAttendanceOf(sessionId, List.of("S002", "S003"));
+
+        assertEquals(1, found.size());
+        assertEquals("S002", found.get(0).getString("studentId"));
+        assertNotNull(found.get(0).getObjectId("_id"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Latest session times of several classes
+     * Testing Input: BIO101 with two sessions, CHEM201 with none
+     * Testing Procedure: Read the latest openedAt of both classes at once
+     * Expected Result: Only BIO101 is returned, with the openedAt of its later session
+     */
+    @Test
+    public void testGetLatestOpenedAt_SeveralClasses_LatestSessionEach() {
+        repository.createSession("BIO101", "20250101_090000", "{}");
+        repository.createSession("BIO101", "20250108_090000", "{}");
+
+        Map<String, String> openedAt = repository.getLatestOpenedAt(List.of("BIO101", "CHEM201"));
+
+        assertEquals(1, openedAt.size());
+        assertEquals(repository.getLatestSessionSummary("BIO101").getString("openedAt"), openedAt.get("BIO101"));
+        assertEquals("20250108_090000", repository.getLatestSessionSummary("BIO101").getString("sessionId"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Latest session and summary finalization
+     * Testing Input: Two sessions; the later one has two of three students present
+     * Testing Procedure: Check in, close the later session, read the latest attendance and summary
+     * Expected Result: Latest session is the later one with count 2; summary is final with 1 absent
+     */
+    @Test
+    public void testCloseSession_LatestSummary_FinalWithAbsentCount() {
+        repository.createSession("BIO101", "20250101_090000", "{}");
+        repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1");
+        repository.createSession("BIO101", "20250108_090000", "{}");
+        repository.markAttendance("BIO101", "20250108_090000", "S001", "Student 1");
+        repository.markAttendance("BIO101", "20250108_090000", "S002", "Student 2");
+
+        assertTrue(repository.closeSession("20250108_090000"));
+
+        Document latest = repository.getLatestSessionAttendance("BIO101");
+        assertEquals("20250108_090000", latest.getString("sessionId"));
+        assertEquals(2, latest.getInteger("count"));
+
+        Document summary = repository.getLatestSessionSummary("BIO101");
+        assertTrue(summary.getBoolean("final"));
+        assertEquals(3, summary.getInteger("rosterSize"));
+        assertEquals(1, summary.getInteger("absent"));
+        assertFalse(repository.getSession("20250108_090000").getBoolean("active"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Live feed
+     * Testing Input: One subscriber on a session
+     * Testing Procedure: Check in once, close the subscription, check in again
+     * Expected Result: Only the check-in made while subscribed is delivered
+     */
+    @Test
+    public void testSubscribeToAttendance_DeliversUntilClosed() {
+        List<String> delivered = new ArrayList<>();
+        AttendanceSubscription subscription =
+                repository.subscribeToAttendance("20250101_090000", record -> delivered.add(record.getString("studentId")));
+
+        repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1");
+        subscription.close();
+        repository.markAttendance("BIO101", "20250101_090000", "S002", "Student 2");
+
+        assertEquals(List.of("S001"), delivered);
+        assertTrue(subscription.isClosed());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Live feed catch-up
+     * Testing Input: Two check-ins made before a subscriber joins the session
+     * Testing Procedure: Subscribe, then check in a third student and repeat the first one
+     * Expected Result: The stored check-ins are delivered first, then the new one; nothing twice
+     */
+    @Test
+    public void testSubscribeToAttendance_LateSubscriber_ReceivesStoredCheckIns() {
+        repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1");
+        repository.markAttendance("BIO101", "20250101_090000", "S002", "Student 2");
+
+        List<String> delivered = new ArrayList<>();
+        repository.subscribeToAttendance("20250101_090000", record -> delivered.add(record.getString("studentId")));
+        repository.markAttendance("BIO101", "20250101_090000", "S003", "Student 3");
+        repository.markAttendance("BIO101", "20250101_090000", "S001", "Student 1");
+
+        assertEquals(List.of("S001", "S002", "S003"), delivered);
+    }
+}
@@ -0,0 +1,83 @@
+package com.weatherboys.weatherguard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for PollingSchedule - Adaptive attendance polling cadence
+ *
+ * Tests cover:
+ * - Fast polling during the session warm-up
+ * - Exponential back-off when the session is quiet
+ * - Reset to fast polling on a check-in burst
+ */
+public class PollingScheduleTest {
+
+    private static final long START = 1_000_000L;
+    private static final long WARMUP = PollingSchedule.DEFAULT_WARMUP_MILLIS;
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Warm-up period
+     * Testing Input: Quiet polls during the first minutes of a session
+     * Testing Procedure: Ask for the next delay several times before warm-up ends
+     * Expected Result: Delay stays at the fast interval
+     */
+    @Test
+    public void testNextDelay_DuringWarmup_StaysFast() {
+        PollingSchedule schedule = new PollingSchedule(START);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(PollingSchedule.DEFAULT_FAST_MILLIS, schedule.nextDelay(0, START + i * 1000L));
+        }
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Back-off after warm-up
+     * Testing Input: Repeated quiet polls after warm-up
+     * Testing Procedure: Ask for the next delay until it stops growing
+     * Expected Result: Delay doubles each time and is capped at the maximum
+     */
+    @Test
+    public void testNextDelay_QuietAfterWarmup_BacksOffToMax() {
+        PollingSchedule schedule = new PollingSchedule(START);
+        long now = START + WARMUP;
+
+        assertEquals(4_000, schedule.nextDelay(0, now));
+        assertEquals(8_000, schedule.nextDelay(0, now));
+        assertEquals(16_000, schedule.nextDelay(0, now));
+        assertEquals(PollingSchedule.DEFAULT_MAX_MILLIS, schedule.nextDelay(0, now));
+        assertEquals(PollingSchedule.DEFAULT_MAX_MILLIS, schedule.nextDelay(0, now));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Check-in burst
+     * Testing Input: A poll that returned new records after backing off
+     * Testing Procedure: Back off, then report new records
+     * Expected Result: Delay resets to the fast interval
+     */
+    @Test
+    public void testNextDelay_NewRecords_ResetsToFast() {
+        PollingSchedule schedule = new PollingSchedule(START);
+        long now = START + WARMUP;
+        schedule.nextDelay(0, now);
+        schedule.nextDelay(0, now);
+
+        assertEquals(PollingSchedule.DEFAULT_FAST_MILLIS, schedule.nextDelay(3, now));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Constructor validation
+     * Testing Input: Maximum interval below the fast interval
+     * Testing Procedure: Construct a schedule with an invalid range
+     * Expected Result: IllegalArgumentException thrown
+     */
+    @Test
+    public void testConstructor_InvalidRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PollingSchedule(5_000, 1_000, WARMUP, START));
+    }
+}
@@ -0,0 +1,110 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for ApiBudget - Prioritized token bucket for OpenWeather requests
+ *
+ * Tests cover:
+ * - Waiting requests start in lane order as tokens refill
+ * - Requests still waiting at their deadline are rejected
+ * - A 429 pauses the bucket for the Retry-After period
+ */
+public class ApiBudgetTest {
+
+    // One token per second, bucket of one
+    private static final int CALLS_PER_MINUTE = 60;
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final List<Runnable> timers = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private ApiBudget budget;
+
+    @BeforeEach
+    public void setUp() {
+        // Timer tasks are queued so the test decides when they run
+        budget = new ApiBudget(CALLS_PER_MINUTE, 1, now::get, (task, delayMillis) -> timers.add(task));
+    }
+
+    private void request(ApiBudget.Priority priority, String name) {
+        budget.acquire(priority, () -> events.add(name), e -> events.add("rejected " + name));
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(millis);
+        List<Runnable> due = new ArrayList<>(timers);
+        timers.clear();
+        due.forEach(Runnable::run);
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Priority lanes
+     * Testing Input: One token; a view load, then a background and a second view request
+     * Testing Procedure: Request all three, then let two tokens refill
+     * Expected Result: The first starts at once; the second view request starts before the background one
+     */
+    @Test
+    public void testAcquire_EmptyBucket_InteractiveBeforeBackground() {
+        request(ApiBudget.Priority.INTERACTIVE, "view");
+        request(ApiBudget.Priority.BACKGROUND, "refresh");
+        request(ApiBudget.Priority.INTERACTIVE, "view2");
+
+        assertEquals(List.of("view"), events);
+        assertEquals(1, budget.getQueued(ApiBudget.Priority.INTERACTIVE));
+
+        advance(1000);
+        advance(1000);
+
+        assertEquals(List.of("view", "view2", "refresh"), events);
+        assertEquals(2, budget.getDelayed());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Queue deadlines
+     * Testing Input: A view request behind a 429 pause longer than its deadline
+     * Testing Procedure: Throttle for 60 seconds, request, advance past the interactive deadline
+     * Expected Result: The request is rejected, not started
+     */
+    @Test
+    public void testAcquire_PastDeadline_Rejected() {
+        budget.throttle("60");
+        request(ApiBudget.Priority.INTERACTIVE, "view");
+
+        advance(ApiBudget.Priority.INTERACTIVE.getDeadlineMillis());
+
+        assertEquals(List.of("rejected view"), events);
+        assertEquals(1, budget.getExpired());
+        assertEquals(0, budget.getQueued(ApiBudget.Priority.INTERACTIVE));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Retry-After
+     * Testing Input: A 429 with Retry-After: 5 while the bucket is full
+     * Testing Procedure: Throttle, request, advance 4 seconds, then past 5 seconds
+     * Expected Result: Nothing starts during the pause; the request starts once it ends
+     */
+    @Test
+    public void testThrottle_RetryAfter_PausesRequests() {
+        budget.throttle("5");
+        request(ApiBudget.Priority.INTERACTIVE, "view");
+        assertEquals(0, budget.getRemaining());
+
+        advance(4000);
+        assertTrue(events.isEmpty());
+
+        advance(1000);
+        assertEquals(List.of("view"), events);
+        assertEquals(1, budget.getThrottled());
+        assertEquals(ApiBudget.DEFAULT_RETRY_AFTER_MILLIS, ApiBudget.retryAfterMillis("soon", 0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for ConfigManager - Reading config.properties while an editor saves it
+ *
+ * Tests cover:
+ * - Reads taken in the middle of a save are refused and the last good snapshot kept
+ * - Complete edits are published
+ */
+public class ConfigManagerTest {
+
+    private static Properties properties(String... keyValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private static Properties full(String apiKey) {
+        return properties("apiKey", apiKey, "mongoConnectionString", "mongodb://localhost:27017",
+                "mongoDatabaseName", "weatherguard", "mongoMaxPoolSize", "20",
+                "apiCallsPerMinute", "60", "tileCacheMaxEntries", "500");
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Mid-save reads
+     * Testing Input: A six-key snapshot; then a missing file, an empty file and a file cut off after two keys
+     * Testing Procedure: Offer each read to accept
+     * Expected Result: Every read is refused and the current snapshot is returned unchanged
+     */
+    @Test
+    public void testAccept_MidSaveRead_KeepsLastGoodSnapshot() {
+        ConfigSnapshot current = new ConfigSnapshot(full("abc123"));
+
+        assertSame(current, ConfigManager.accept(current, null));
+        assertSame(current, ConfigManager.accept(current, new Properties()));
+        assertSame(current, ConfigManager.accept(current,
+                properties("apiKey", "abc123", "mongoConnectionString", "mongodb://localhost:27017")));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Complete edits
+     * Testing Input: A six-key snapshot; a full file with a new API key; a first read with no snapshot yet
+     * Testing Procedure: Offer each read to accept
+     * Expected Result: The edit is published with the new key; the first read is published even if empty
+     */
+    @Test
+    public void testAccept_CompleteEdit_Published() {
+        ConfigSnapshot current = new ConfigSnapshot(full("abc123"));
+
+        ConfigSnapshot next = ConfigManager.accept(current, full("def456"));
+
+        assertEquals("def456", next.get("apiKey"));
+        assertTrue(next.differs(current, "apiKey"));
+        assertEquals(ConfigSnapshot.EMPTY, ConfigManager.accept(null, null));
+    }
+}
@@ -0,0 +1,67 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for ConfigSnapshot - Immutable configuration view
+ *
+ * Tests cover:
+ * - Typed accessors and their defaults
+ * - Immutability against the source Properties
+ * - Change detection between snapshots
+ */
+public class ConfigSnapshotTest {
+
+    private static Properties properties(String... keyValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Typed accessors
+     * Testing Input: Valid, blank, malformed and missing keys
+     * Testing Procedure: Read each with a default
+     * Expected Result: Valid values are parsed and trimmed; the rest fall back to the default
+     */
+    @Test
+    public void testAccessors_MissingOrMalformed_UseDefaults() {
+        ConfigSnapshot config = new ConfigSnapshot(properties(
+                "apiKey", " abc123 ", "blank", "  ", "poolSize", "20", "timeout", "soon", "queue", "false"));
+
+        assertEquals("abc123", config.get("apiKey"));
+        assertNull(config.get("blank"));
+        assertEquals("fallback", config.get("missing", "fallback"));
+        assertEquals(20, config.getInt("poolSize", 5));
+        assertEquals(5000L, config.getLong("timeout", 5000L));
+        assertFalse(config.getBoolean("queue", true));
+        assertTrue(config.getBoolean("missing", true));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Immutability and change detection
+     * Testing Input: A snapshot, then an edit to the Properties it was built from
+     * Testing Procedure: Modify the source, build a second snapshot, compare
+     * Expected Result: First snapshot is unchanged; only the edited key differs
+     */
+    @Test
+    public void testDiffers_EditedKey_DetectedAndOriginalUnchanged() {
+        Properties source = properties("apiKey", "old", "mongoDatabaseName", "weatherguard");
+        ConfigSnapshot before = new ConfigSnapshot(source);
+        source.setProperty("apiKey", "new");
+        ConfigSnapshot after = new ConfigSnapshot(source);
+
+        assertEquals("old", before.get("apiKey"));
+        assertTrue(before.differs(after, "apiKey"));
+        assertFalse(before.differs(after, "mongoDatabaseName"));
+        assertNotEquals(before, after);
+    }
+}
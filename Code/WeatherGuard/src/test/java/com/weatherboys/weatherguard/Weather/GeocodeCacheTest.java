@@ -0,0 +1,54 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for GeocodeCache - Persistent city to coordinates lookup
+ *
+ * Tests cover:
+ * - Coordinates surviving a restart
+ * - Case-insensitive city keys
+ * - Unknown cities
+ */
+public class GeocodeCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Persistence
+     * Testing Input: Coordinates for Portland,US
+     * Testing Procedure: Put, then load a new cache from the same file and look up with different case
+     * Expected Result: The same coordinates are returned
+     */
+    @Test
+    public void testPut_Reload_CoordinatesRestored() {
+        Path file = tempDir.resolve("geocode_cache.properties");
+        new GeocodeCache(file).put("Portland,US", 45.5234, -122.6762);
+
+        double[] coordinates = new GeocodeCache(file).lookup(" portland,us ");
+        assertNotNull(coordinates);
+        assertEquals(45.5234, coordinates[0], 1e-9);
+        assertEquals(-122.6762, coordinates[1], 1e-9);
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Cache miss
+     * Testing Input: City that was never resolved
+     * Testing Procedure: Look it up in an empty cache
+     * Expected Result: null, and no file is created
+     */
+    @Test
+    public void testLookup_UnknownCity_ReturnsNull() {
+        Path file = tempDir.resolve("geocode_cache.properties");
+        assertNull(new GeocodeCache(file).lookup("Chicago,US"));
+        assertFalse(file.toFile().exists());
+    }
+}
@@ -0,0 +1,120 @@
+package com.weatherboys.weatherguard.Weather;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for HttpGateway - Shared HTTP client
+ *
+ * Tests cover:
+ * - Coalescing of identical in-flight requests
+ * - Per-host concurrency limit
+ * - Per-host counters
+ *
+ * NOTE: These tests run against a local HttpServer, not the real APIs
+ */
+public class HttpGatewayTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            served.incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                // Hold every response until the test releases them, so requests overlap
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Single-flight coalescing
+     * Testing Input: Three concurrent requests for the same URL
+     * Testing Procedure: Start all three before the server answers, then release it
+     * Expected Result: The server sees one request and all callers get the body
+     */
+    @Test
+    public void testGetStringAsync_SameUrl_Coalesced() {
+        HttpGateway gateway = new HttpGateway(2000, 5000, 4);
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(gateway.getStringAsync(baseUrl + "/weather?q=Portland"));
+        }
+        release.countDown();
+
+        for (CompletableFuture<HttpResponse<String>> future : futures) {
+            assertEquals("{\"ok\":true}", future.join().body());
+        }
+        assertEquals(1, served.get());
+    }
+
+    /**
+     * Test Type: Stress Test
+     * Testing Range: Per-host concurrency limit
+     * Testing Input: Six different URLs on one host with a limit of 2
+     * Testing Procedure: Start all six, release the server, wait for all
+     * Expected Result: All six succeed, never more than 2 at once, counters record 6 requests
+     */
+    @Test
+    public void testGetBytesAsync_HostLimit_Respected() {
+        HttpGateway gateway = new HttpGateway(2000, 5000, 2);
+        List<CompletableFuture<HttpResponse<byte[]>>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(gateway.getBytesAsync(baseUrl + "/tile/" + i + ".png"));
+        }
+        release.countDown();
+
+        for (CompletableFuture<HttpResponse<byte[]>> future : futures) {
+            assertEquals(200, future.join().statusCode());
+        }
+        assertEquals(6, served.get());
+        assertTrue(maxActive.get() <= 2);
+
+        HttpGateway.Host host = gateway.getHostStats().get("127.0.0.1");
+        assertEquals(6, host.getRequests());
+        assertEquals(0, host.getFailures());
+        assertTrue(host.getBytes() > 0);
+    }
+}
@@ -0,0 +1,144 @@
+package com.weatherboys.weatherguard.Weather;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for TileCache - Disk-backed map tile cache
+ *
+ * Tests cover:
+ * - Serving fresh tiles without any request, including after a restart
+ * - Conditional revalidation of expired tiles
+ * - Size cap and eviction
+ *
+ * NOTE: These tests run against a local HttpServer, not the real tile servers
+ */
+public class TileCacheTest {
+
+    private static final long TTL_MILLIS = TileCache.DEFAULT_BASE_TTL_MILLIS;
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private String baseUrl;
+    private byte[] png;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB), "png", bytes);
+        png = bytes.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.sendResponseHeaders(200, png.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(png);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private TileCache newCache(long maxBytes) {
+        return new TileCache(directory, maxBytes, 4, now::get);
+    }
+
+    private static TileCache.Key baseTile(int x) {
+        return new TileCache.Key("osm", "base", 7, x, 45, true);
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Warm cache
+     * Testing Input: The same tile requested twice, then again from a new cache on the same directory
+     * Testing Procedure: Fetch, fetch again, recreate the cache and fetch
+     * Expected Result: One download; the later fetches are memory and disk hits
+     */
+    @Test
+    public void testGetTile_WarmCache_NoNetwork() {
+        TileCache cache = newCache(TileCache.DEFAULT_MAX_BYTES);
+        assertNotNull(cache.getTile(baseTile(20), baseUrl + "/7/20/45.png").join());
+        assertNotNull(cache.getTile(baseTile(20), baseUrl + "/7/20/45.png").join());
+        assertEquals(1, cache.getMemoryHits());
+
+        TileCache restarted = newCache(TileCache.DEFAULT_MAX_BYTES);
+        assertNotNull(restarted.getTile(baseTile(20), baseUrl + "/7/20/45.png").join());
+        assertEquals(1, restarted.getDiskHits());
+        assertEquals(1, downloads.get());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Conditional revalidation
+     * Testing Input: A cached tile whose TTL has passed; the server answers 304 to its ETag
+     * Testing Procedure: Fetch, advance the clock past the TTL, fetch twice more
+     * Expected Result: One revalidation, no second download, the renewed tile is then a hit
+     */
+    @Test
+    public void testGetTile_Expired_RevalidatedWithEtag() {
+        TileCache cache = newCache(TileCache.DEFAULT_MAX_BYTES);
+        cache.getTile(baseTile(20), baseUrl + "/7/20/45.png").join();
+
+        now.addAndGet(TTL_MILLIS + 1);
+        assertNotNull(cache.getTile(baseTile(20), baseUrl + "/7/20/45.png").join());
+        assertNotNull(cache.getTile(baseTile(20), baseUrl + "/7/20/45.png").join());
+
+        assertEquals(1, notModified.get());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(1, downloads.get());
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    /**
+     * Test Type: Boundary Test
+     * Testing Range: Size cap
+     * Testing Input: A cap that holds two tiles; three different tiles fetched
+     * Testing Procedure: Fetch tiles 1, 2 and 3, then tile 1 again
+     * Expected Result: Tile 1 is evicted, stays under the cap, and is downloaded again
+     */
+    @Test
+    public void testGetTile_OverCap_EvictsLeastRecentlyUsed() {
+        TileCache cache = newCache(png.length * 2L);
+        for (int x = 1; x <= 3; x++) {
+            cache.getTile(baseTile(x), baseUrl + "/7/" + x + "/45.png").join();
+        }
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getDiskBytes() <= png.length * 2L);
+
+        cache.getTile(baseTile(1), baseUrl + "/7/1/45.png").join();
+        assertEquals(4, downloads.get());
+    }
+}
@@ -0,0 +1,107 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WeatherBatch - Multi-city current weather
+ *
+ * Tests cover:
+ * - Cities with known IDs fetched by group calls of at most 20, then served from the cache
+ * - Cities without IDs, or missed by the group call, fetched one at a time
+ */
+public class WeatherBatchTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final Map<String, Long> ids = new HashMap<>();
+    private final List<Integer> groupSizes = new ArrayList<>();
+    private final List<String> singles = new ArrayList<>();
+    private WeatherBatch batch;
+
+    @BeforeEach
+    public void setUp() {
+        WeatherCache cache = new WeatherCache(now::get, Runnable::run);
+        // Everything runs on the calling thread so the test sees calls in order
+        batch = new WeatherBatch(cache, city -> ids.getOrDefault(city, 0L), this::group, this::single, Runnable::run);
+    }
+
+    private static Weather weather(String name) {
+        return new Weather(72, 80, 60, 22, 27, 16, 50, 10000, -25200, 0L, 0L, 0L,
+                -122.68, 45.52, 5.0, "clear sky", "US", name, "01d");
+    }
+
+    // The provider knows every ID below 1000
+    private Map<Long, Weather> group(List<Long> chunk) {
+        groupSizes.add(chunk.size());
+        Map<Long, Weather> result = new HashMap<>();
+        for (long id : chunk) {
+            if (id < 1000) {
+                result.put(id, weather("City" + id));
+            }
+        }
+        return result;
+    }
+
+    private Weather single(String city) {
+        singles.add(city);
+        return city.startsWith("Nowhere") ? new Weather() : weather(city);
+    }
+
+    /**
+     * Test Type: Performance Test
+     * Testing Range: Group requests
+     * Testing Input: 45 cities with known IDs plus a differently spelled duplicate
+     * Testing Procedure: Fetch them twice
+     * Expected Result: Three group calls (20, 20, 5) and no single calls; the second fetch makes no calls
+     */
+    @Test
+    public void testFetch_KnownIds_GroupedThenCached() {
+        List<String> cities = new ArrayList<>();
+        for (long id = 1; id <= 45; id++) {
+            cities.add("City" + id);
+            ids.put("City" + id, id);
+        }
+        cities.add(" city1 ");
+
+        Map<String, Weather> first = batch.fetch(cities);
+        Map<String, Weather> second = batch.fetch(cities);
+
+        assertEquals(List.of(20, 20, 5), groupSizes);
+        assertTrue(singles.isEmpty());
+        assertEquals(46, first.size());
+        assertEquals("City45", first.get("City45").getName());
+        assertSame(first.get("City1"), first.get(" city1 "));
+        assertSame(first.get("City7"), second.get("City7"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Single-city fallback
+     * Testing Input: A city with a known ID, one with an ID the group call misses, one unknown, one unresolvable
+     * Testing Procedure: Fetch all four
+     * Expected Result: One group call; the missed and unknown cities are fetched singly; the unresolvable one is empty
+     */
+    @Test
+    public void testFetch_MissingIds_FetchedSingly() {
+        ids.put("Portland", 5L);
+        ids.put("Atlantis", 4242L);
+
+        Map<String, Weather> result = batch.fetch(List.of("Portland", "Atlantis", "Boise", "Nowhere"));
+
+        assertEquals(List.of(2), groupSizes);
+        assertEquals(List.of("Boise", "Nowhere", "Atlantis"), singles);
+        assertEquals("City5", result.get("Portland").getName());
+        assertEquals("Atlantis", result.get("Atlantis").getName());
+        assertTrue(result.get("Nowhere").isEmpty());
+        assertEquals(1, batch.getGroupRequests());
+        assertEquals(3, batch.getSingleRequests());
+    }
+}
@@ -0,0 +1,145 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WeatherCache - TTL and stale-while-revalidate cache
+ *
+ * Tests cover:
+ * - Fresh entries served without calling the loader
+ * - Stale entries served while exactly one background refresh runs
+ * - Failed (empty) fetches not cached
+ * - Entries past the stale limit fetched on the calling thread
+ * - Only the most recently used maps kept
+ */
+public class WeatherCacheTest {
+
+    private static final long TTL = 1000;
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private WeatherCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        // Background refreshes are queued so the test decides when they run
+        cache = new WeatherCache(now::get, refreshes::add);
+    }
+
+    private String get(String value) {
+        return cache.get("weather:portland", TTL, () -> {
+            loads.incrementAndGet();
+            return value;
+        }, String::isEmpty);
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Fresh entry
+     * Testing Input: Two reads within the TTL
+     * Testing Procedure: Read, advance the clock by less than the TTL, read again
+     * Expected Result: Loader runs once; second read is a hit with the first value
+     */
+    @Test
+    public void testGet_WithinTtl_NoSecondLoad() {
+        assertEquals("sunny", get("sunny"));
+        now.set(TTL - 1);
+        assertEquals("sunny", get("rain"));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Stale-while-revalidate
+     * Testing Input: Two reads just past the TTL
+     * Testing Procedure: Read, expire, read twice, then run the queued refresh
+     * Expected Result: Stale value returned both times, one refresh queued, new value served after it runs
+     */
+    @Test
+    public void testGet_Stale_ServedWhileOneRefreshRuns() {
+        get("sunny");
+        now.set(TTL + 1);
+
+        assertEquals("sunny", get("rain"));
+        assertEquals("sunny", get("rain"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals("rain", get("snow"));
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Failed fetch
+     * Testing Input: Loader returning an empty value
+     * Testing Procedure: Read twice
+     * Expected Result: Both reads call the loader
+     */
+    @Test
+    public void testGet_EmptyResult_NotCached() {
+        assertEquals("", get(""));
+        assertEquals("", get(""));
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Stale limit
+     * Testing Input: Entry older than TTL + MAX_STALE_MILLIS
+     * Testing Procedure: Read, advance past the stale limit, read again
+     * Expected Result: Second read loads on the calling thread and returns the new value
+     */
+    @Test
+    public void testGet_PastStaleLimit_LoadsSynchronously() {
+        get("sunny");
+        now.set(TTL + WeatherCache.MAX_STALE_MILLIS);
+
+        assertEquals("rain", get("rain"));
+        assertTrue(refreshes.isEmpty());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Test Type: Performance Test
+     * Testing Range: Map entry bound
+     * Testing Input: One more map location than DEFAULT_MAX_MAPS
+     * Testing Procedure: Load a map per location, reading the first one again before the last
+     * Expected Result: The second location is evicted and reloaded; the first is still cached
+     */
+    @Test
+    public void testGetMap_OverLimit_EvictsLeastRecentlyUsed() {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        for (int i = 0; i < WeatherCache.DEFAULT_MAX_MAPS; i++) {
+            double lat = i;
+            cache.getMap(lat, 0, () -> {
+                loads.incrementAndGet();
+                return new StaticMap(image, lat, 0);
+            });
+        }
+        cache.getMap(0, 0, () -> new StaticMap(image, 0, 0));
+        cache.getMap(99, 0, () -> new StaticMap(image, 99, 0));
+
+        StaticMap first = cache.getMap(0, 0, () -> null);
+        StaticMap second = cache.getMap(1, 0, () -> {
+            loads.incrementAndGet();
+            return new StaticMap(image, 1, 0);
+        });
+
+        assertEquals(0.0, first.getLat());
+        assertEquals(1.0, second.getLat());
+        assertEquals(WeatherCache.DEFAULT_MAX_MAPS + 1, loads.get());
+    }
+}
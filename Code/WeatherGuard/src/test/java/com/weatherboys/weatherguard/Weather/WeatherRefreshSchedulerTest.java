@@ -0,0 +1,99 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WeatherRefreshScheduler - Background refresh on the provider's cadence
+ *
+ * Tests cover:
+ * - A city observed by several views is fetched once and every view is told
+ * - A city stops being refreshed when its last observer closes
+ */
+public class WeatherRefreshSchedulerTest {
+
+    // Fixed "now" in epoch milliseconds; observation times are Unix seconds
+    private static final long NOW = 1_000_000_000L;
+
+    private ScheduledExecutorService executor;
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Weather observedAt(long time) {
+        return new Weather(72, 80, 60, 22, 27, 16, 50, 10000, -25200, 0L, 0L, time,
+                -122.68, 45.52, 5.0, "clear sky", "US", "Portland", "01d");
+    }
+
+    // No jitter; the cached observation is cachedAge seconds old and the API returns one from 30 s ago
+    private WeatherRefreshScheduler scheduler(long cachedAge) {
+        return new WeatherRefreshScheduler(executor, () -> NOW, bound -> 0,
+                city -> observedAt(NOW / 1000 - cachedAge),
+                city -> {
+                    fetches.incrementAndGet();
+                    return observedAt(NOW / 1000 - 30);
+                });
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Deduplication of shared cities
+     * Testing Input: Two views observing the same city (different spelling), cached observation overdue
+     * Testing Procedure: Observe twice and wait for both views to be notified
+     * Expected Result: The city is tracked once and fetched once; both views are notified
+     */
+    @Test
+    public void testObserve_SharedCity_FetchedOnceForAllViews() throws InterruptedException {
+        WeatherRefreshScheduler scheduler = scheduler(700);
+        CountDownLatch notified = new CountDownLatch(2);
+
+        scheduler.observe("Portland,US", notified::countDown);
+        scheduler.observe(" portland,us ", notified::countDown);
+
+        assertEquals(Set.of("Portland,US"), scheduler.getObservedCities());
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        assertEquals(1, fetches.get());
+        assertEquals(1, scheduler.getRefreshes());
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Pausing unobserved cities
+     * Testing Input: Two observations of one city with a recent cached observation
+     * Testing Procedure: Close the observations one at a time
+     * Expected Result: The city stays tracked until the last observation closes; nothing is fetched
+     */
+    @Test
+    public void testClose_LastObserver_StopsRefreshing() {
+        WeatherRefreshScheduler scheduler = scheduler(10);
+
+        WeatherRefreshScheduler.Observation first = scheduler.observe("Portland,US", () -> { });
+        WeatherRefreshScheduler.Observation second = scheduler.observe("Portland,US", () -> { });
+
+        first.close();
+        first.close();
+        assertEquals(Set.of("Portland,US"), scheduler.getObservedCities());
+
+        second.close();
+        assertTrue(scheduler.getObservedCities().isEmpty());
+        assertEquals(0, fetches.get());
+    }
+}
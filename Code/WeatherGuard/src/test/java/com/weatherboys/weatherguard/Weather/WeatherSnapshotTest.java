@@ -0,0 +1,63 @@
+package com.weatherboys.weatherguard.Weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WeatherSnapshot - Immutable weather publication
+ *
+ * Tests cover:
+ * - Copy-on-write updates leave earlier snapshots untouched
+ * - Failed (empty) fetches never replace data
+ */
+public class WeatherSnapshotTest {
+
+    private static Weather weather(String name) {
+        return new Weather(72, 80, 60, 22, 27, 16, 50, 10000, -25200, 0L, 0L, 0L,
+                -122.68, 45.52, 5.0, "clear sky", "US", name, "01d");
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Copy-on-write updates
+     * Testing Input: An empty snapshot updated with weather, then with a forecast
+     * Testing Procedure: Apply each update and compare with the earlier snapshots
+     * Expected Result: Each update returns a new snapshot; earlier ones are unchanged
+     */
+    @Test
+    public void testWith_NewData_EarlierSnapshotsUnchanged() {
+        WeatherSnapshot empty = WeatherSnapshot.empty("Portland,US");
+        WeatherSnapshot withWeather = empty.withWeather(weather("Portland"), 1000L);
+        Forecast forecast = new Forecast(45.52, -122.68, -25200, List.of());
+        WeatherSnapshot complete = withWeather.withForecast(forecast, 2000L)
+                .withMap(new StaticMap(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE), 45.52, -122.68), 3000L);
+
+        assertFalse(empty.hasWeather());
+        assertFalse(withWeather.hasForecast());
+        assertEquals("Portland", withWeather.getWeather().getName());
+        assertEquals(1000L, complete.getWeatherFetchedAt());
+        assertEquals(2000L, complete.getForecastFetchedAt());
+        assertTrue(complete.isComplete());
+    }
+
+    /**
+     * Test Type: Boundary Test
+     * Testing Range: Failed fetches
+     * Testing Input: Empty Weather, Forecast and StaticMap objects
+     * Testing Procedure: Apply them to a snapshot that already holds weather
+     * Expected Result: The same snapshot instance is returned, keeping the earlier weather
+     */
+    @Test
+    public void testWith_EmptyResults_KeepPreviousData() {
+        WeatherSnapshot snapshot = WeatherSnapshot.empty("Portland,US").withWeather(weather("Portland"), 1000L);
+
+        assertSame(snapshot, snapshot.withWeather(new Weather(), 2000L));
+        assertSame(snapshot, snapshot.withForecast(new Forecast(), 2000L));
+        assertSame(snapshot, snapshot.withMap(new StaticMap(), 2000L));
+        assertEquals(1000L, snapshot.getWeatherFetchedAt());
+    }
+}
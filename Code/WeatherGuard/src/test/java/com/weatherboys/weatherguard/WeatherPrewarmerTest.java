@@ -0,0 +1,71 @@
+package com.weatherboys.weatherguard;
+
+import com.weatherboys.model.ClassInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WeatherPrewarmer - Ordering cities of upcoming classes
+ *
+ * Tests cover:
+ * - Predicting the next meeting from the latest session's time of day
+ * - Deduplicating cities and ordering them by the soonest class
+ */
+public class WeatherPrewarmerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 10, 6, 9, 0);
+
+    private static ClassInfo classIn(String classId, String city) {
+        return new ClassInfo(classId, classId, "Fall", 2025, "Prof", city, "2025-09-01", "2025-12-15");
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Next meeting prediction
+     * Testing Input: Latest sessions opened later in the day, just before now, earlier in the day, never
+     * Testing Procedure: Predict the minutes until each class meets at 9:00
+     * Expected Result: Later today; now (within the grace period); tomorrow; unknown
+     */
+    @Test
+    public void testMinutesUntilMeeting_TimeOfDay_TodayOrTomorrow() {
+        assertEquals(60, WeatherPrewarmer.minutesUntilMeeting("2025-10-01T10:00:00", NOW));
+        assertEquals(0, WeatherPrewarmer.minutesUntilMeeting("2025-10-03T08:50:00", NOW));
+        assertEquals(23 * 60, WeatherPrewarmer.minutesUntilMeeting("2025-10-03T08:00:00", NOW));
+        assertEquals(WeatherPrewarmer.UNKNOWN, WeatherPrewarmer.minutesUntilMeeting(null, NOW));
+        assertEquals(WeatherPrewarmer.UNKNOWN, WeatherPrewarmer.minutesUntilMeeting("yesterday", NOW));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: City deduplication and ordering
+     * Testing Input: Four classes in three cities, one city shared (in different case), one class never held
+     * Testing Procedure: Plan the cities to warm
+     * Expected Result: Three cities, the shared one once with its soonest class, never-held class last
+     */
+    @Test
+    public void testPlan_SharedCities_OncePerCitySoonestFirst() {
+        List<ClassInfo> classes = List.of(
+                classIn("BIO101", "Portland"),
+                classIn("CHEM201", "Seattle"),
+                classIn("PHYS301", "portland "),
+                classIn("ART100", "Boise"));
+        Map<String, String> openedAt = Map.of(
+                "BIO101", "2025-10-03T14:00:00",
+                "CHEM201", "2025-10-03T11:00:00",
+                "PHYS301", "2025-10-03T09:30:00");
+
+        List<WeatherPrewarmer.City> cities = WeatherPrewarmer.plan(classes, openedAt::get, NOW);
+
+        assertEquals(3, cities.size());
+        assertEquals("Portland", cities.get(0).name());
+        assertEquals(30, cities.get(0).minutesUntilMeeting());
+        assertEquals("Seattle", cities.get(1).name());
+        assertEquals("Boise", cities.get(2).name());
+        assertEquals(WeatherPrewarmer.UNKNOWN, cities.get(2).minutesUntilMeeting());
+    }
+}
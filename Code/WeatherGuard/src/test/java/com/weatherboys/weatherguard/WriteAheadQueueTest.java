@@ -0,0 +1,114 @@
+package com.weatherboys.weatherguard;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for WriteAheadQueue - Outage-tolerant local write queue
+ *
+ * Tests cover:
+ * - Durability of acknowledged writes across a restart
+ * - Draining to the database and truncating the file
+ * - Retrying a batch after a failed drain
+ */
+public class WriteAheadQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Document checkIn(String studentId) {
+        return new Document("op", "markAttendance")
+                .append("doc", new Document("sessionId", "20250101_090000").append("studentId", studentId));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Replay after restart
+     * Testing Input: Three appended writes that were never drained
+     * Testing Procedure: Append without starting the worker, close, reopen the same file
+     * Expected Result: All three writes are pending again, in order
+     */
+    @Test
+    public void testReplay_UndrainedWrites_RestoredInOrder() throws Exception {
+        Path file = tempDir.resolve("queue.jsonl");
+        WriteAheadQueue queue = new WriteAheadQueue(file, writes -> { }, 10);
+        queue.append(checkIn("S001"));
+        queue.append(checkIn("S002"));
+        queue.append(checkIn("S003"));
+        queue.close();
+
+        WriteAheadQueue reopened = new WriteAheadQueue(file, writes -> { }, 10);
+        List<Document> pending = reopened.getPending();
+        reopened.close();
+
+        assertEquals(3, pending.size());
+        assertEquals("S001", pending.get(0).get("doc", Document.class).getString("studentId"));
+        assertEquals("S003", pending.get(2).get("doc", Document.class).getString("studentId"));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Background drain
+     * Testing Input: Five writes with a batch size of two
+     * Testing Procedure: Start the worker and wait for the queue to empty
+     * Expected Result: Every write reaches the drainer once, in order, and the file is truncated
+     */
+    @Test
+    public void testDrain_AllWrites_AppliedInOrderAndFileTruncated() throws Exception {
+        Path file = tempDir.resolve("queue.jsonl");
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        WriteAheadQueue queue = new WriteAheadQueue(file, writes -> {
+            for (Document write : writes) {
+                applied.add(write.get("doc", Document.class).getString("studentId"));
+            }
+        }, 2);
+        queue.start();
+        for (int i = 1; i <= 5; i++) {
+            queue.append(checkIn("S00" + i));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        queue.close();
+
+        assertEquals(List.of("S001", "S002", "S003", "S004", "S005"), applied);
+        assertEquals(0, Files.size(file));
+    }
+
+    /**
+     * Test Type: Accuracy Test
+     * Testing Range: Database outage
+     * Testing Input: A drainer that fails on its first call
+     * Testing Procedure: Drain a batch twice, failing the first time
+     * Expected Result: The batch stays queued after the failure and is removed after the retry
+     */
+    @Test
+    public void testDrainBatch_FailureThenSuccess_KeepsWritesUntilApplied() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        WriteAheadQueue queue = new WriteAheadQueue(tempDir.resolve("queue.jsonl"), writes -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unreachable");
+            }
+        }, 10);
+        queue.append(checkIn("S001"));
+
+        assertFalse(queue.drainBatch(queue.getPending()));
+        assertEquals(1, queue.size());
+
+        assertTrue(queue.drainBatch(queue.getPending()));
+        assertEquals(0, queue.size());
+        queue.close();
+    }
+}
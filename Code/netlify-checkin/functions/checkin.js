@@ -43,6 +43,7 @@ exports.handler = async (event, context) => {
         const db = client.db(DB_NAME);
         const studentsCollection = db.collection('students');
         const attendanceCollection = db.collection('attendance');
+        const summariesCollection = db.collection('session_summaries');
 
         // VALIDATE: Check if student exists and is enrolled in this class
         const student = await studentsCollection.findOne({
@@ -85,33 +86,50 @@ exports.handler = async (event, context) => {
             };
         }
 
-        // Check for duplicate check-in
-        const existing = await attendanceCollection.findOne({
-            sessionId: sessionId,
-            studentId: studentId
-        });
-
-        if (existing) {
-            return {
-                statusCode: 409,
-                body: JSON.stringify({
-                    error: 'You have already checked in for this session',
-                    duplicate: true
-                })
-            };
-        }
-
         // Create attendance record
+        const checkedInAt = new Date();
         const attendanceRecord = {
             classId: classId,
             sessionId: sessionId,
             studentId: studentId,
             studentName: student.studentName, // Use name from roster
-            checkInTime: new Date().toISOString(),
+            checkInTime: checkedInAt.toISOString(),
             status: 'present'
         };
 
-        await attendanceCollection.insertOne(attendanceRecord);
+        // Single write: the unique (sessionId, studentId) index rejects duplicate check-ins
+        try {
+            await attendanceCollection.insertOne(attendanceRecord);
+        } catch (error) {
+            if (error.code === 11000) {
+                return {
+                    statusCode: 409,
+                    body: JSON.stringify({
+                        error: 'You have already checked in for this session',
+                        duplicate: true
+                    })
+                };
+            }
+            throw error;
+        }
+
+        // Keep the per-session summary in step with the check-in (one atomic update).
+        // The check-in is already recorded, so a failure here must not fail the request:
+        // a retry would only be rejected as a duplicate. Times are dates, as the desktop app writes them.
+        try {
+            await summariesCollection.updateOne(
+                { sessionId: sessionId },
+                {
+                    $setOnInsert: { classId: classId },
+                    $inc: { [attendanceRecord.status]: 1 },
+                    $min: { firstCheckIn: checkedInAt },
+                    $max: { lastCheckIn: checkedInAt }
+                },
+                { upsert: true }
+            );
+        } catch (error) {
+            console.error('Error updating session summary for ' + sessionId + ':', error);
+        }
 
         return {
             statusCode: 200,